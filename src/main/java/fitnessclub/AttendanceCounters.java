@@ -0,0 +1,331 @@
+package fitnessclub;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Live counts of the members and guests attending fitness classes, kept in dense int arrays
+ * indexed by the ordinals of Offer, Instructor, Location and Time and by county. The counters
+ * listen to the classes they watch and are updated on every enrollment and removal, so
+ * dashboard questions such as how full the CARDIO classes in SOMERSET county are this morning
+ * are one array read instead of a walk over every class. Rollups count members and guests
+ * together. The arrays are atomic, so classes filled on different threads can share them.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class AttendanceCounters implements MutationListener {
+    private static final Offer[] OFFERS = Offer.values();
+    private static final Location[] LOCATIONS = Location.values();
+    private static final int NUM_OFFERS = OFFERS.length;
+    private static final int NUM_INSTRUCTORS = Instructor.values().length;
+    private static final int NUM_LOCATIONS = LOCATIONS.length;
+    private static final int NUM_TIMES = Time.values().length;
+    private static final String[] COUNTIES = counties();
+    private static final int[] COUNTY_OF_LOCATION = countyOfLocation();
+    private static final int MEMBER = 0;
+    private static final int GUEST = 1;
+
+    private final AtomicIntegerArray byClass; //offer, instructor, studio, time, member or guest
+    private final AtomicIntegerArray byOfferStudioTime;
+    private final AtomicIntegerArray byOfferCountyTime;
+    private final AtomicIntegerArray byStudio;
+    private final AtomicIntegerArray byCounty;
+    private final AtomicIntegerArray byInstructor;
+    private final AtomicIntegerArray byOffer;
+    private final AtomicIntegerArray byTime;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates counters at zero that watch no classes
+     */
+    public AttendanceCounters() {
+        byClass = new AtomicIntegerArray(NUM_OFFERS * NUM_INSTRUCTORS * NUM_LOCATIONS * NUM_TIMES * 2);
+        byOfferStudioTime = new AtomicIntegerArray(NUM_OFFERS * NUM_LOCATIONS * NUM_TIMES);
+        byOfferCountyTime = new AtomicIntegerArray(NUM_OFFERS * COUNTIES.length * NUM_TIMES);
+        byStudio = new AtomicIntegerArray(NUM_LOCATIONS);
+        byCounty = new AtomicIntegerArray(COUNTIES.length);
+        byInstructor = new AtomicIntegerArray(NUM_INSTRUCTORS);
+        byOffer = new AtomicIntegerArray(NUM_OFFERS);
+        byTime = new AtomicIntegerArray(NUM_TIMES);
+    }
+
+    /**
+     * Creates counters for every class of a schedule and keeps them up to date
+     *
+     * @param schedule the classes to count
+     * @return the counters
+     */
+    public static AttendanceCounters attach(Schedule schedule) {
+        AttendanceCounters counters = new AttendanceCounters();
+        for (int i = 0; i < schedule.getNumClasses(); i++) {
+            counters.watch(schedule.getClasses()[i]);
+        }
+        return counters;
+    }
+
+    /**
+     * Adds the current members and guests of a class to the counters and follows its changes
+     *
+     * @param fitnessClass the class to count
+     */
+    public void watch(FitnessClass fitnessClass) {
+        count(fitnessClass, MEMBER, fitnessClass.getMemberIds().getCardinality());
+        count(fitnessClass, GUEST, fitnessClass.getGuestIds().getCardinality());
+        fitnessClass.addListener(this);
+    }
+
+    /**
+     * Stops following a class and takes its members and guests out of the counters
+     *
+     * @param fitnessClass the class to stop counting
+     */
+    public void unwatch(FitnessClass fitnessClass) {
+        fitnessClass.removeListener(this);
+        count(fitnessClass, MEMBER, -fitnessClass.getMemberIds().getCardinality());
+        count(fitnessClass, GUEST, -fitnessClass.getGuestIds().getCardinality());
+    }
+
+    /**
+     * Counts a member enrolled in a watched class
+     *
+     * @param fitnessClass the class the member was added to
+     * @param member       the member added
+     */
+    @Override
+    public void classMemberAdded(FitnessClass fitnessClass, Member member) {
+        count(fitnessClass, MEMBER, 1);
+    }
+
+    /**
+     * Uncounts a member dropped from a watched class
+     *
+     * @param fitnessClass the class the member was removed from
+     * @param member       the member removed
+     */
+    @Override
+    public void classMemberRemoved(FitnessClass fitnessClass, Member member) {
+        count(fitnessClass, MEMBER, -1);
+    }
+
+    /**
+     * Counts a guest added to a watched class
+     *
+     * @param fitnessClass the class the guest was added to
+     * @param guest        the member bringing the guest
+     */
+    @Override
+    public void classGuestAdded(FitnessClass fitnessClass, Member guest) {
+        count(fitnessClass, GUEST, 1);
+    }
+
+    /**
+     * Uncounts a guest removed from a watched class
+     *
+     * @param fitnessClass the class the guest was removed from
+     * @param guest        the member who brought the guest
+     */
+    @Override
+    public void classGuestRemoved(FitnessClass fitnessClass, Member guest) {
+        count(fitnessClass, GUEST, -1);
+    }
+
+    /**
+     * Returns the members enrolled in the classes with the given details
+     *
+     * @param offer      the type of class
+     * @param instructor the instructor
+     * @param studio     the studio location
+     * @param time       the time of the class
+     * @return the number of members
+     */
+    public int getMembers(Offer offer, Instructor instructor, Location studio, Time time) {
+        return byClass.get(classIndex(offer.ordinal(), instructor.ordinal(), studio.ordinal(), time.ordinal(), MEMBER));
+    }
+
+    /**
+     * Returns the guests in the classes with the given details
+     *
+     * @param offer      the type of class
+     * @param instructor the instructor
+     * @param studio     the studio location
+     * @param time       the time of the class
+     * @return the number of guests
+     */
+    public int getGuests(Offer offer, Instructor instructor, Location studio, Time time) {
+        return byClass.get(classIndex(offer.ordinal(), instructor.ordinal(), studio.ordinal(), time.ordinal(), GUEST));
+    }
+
+    /**
+     * Returns the attendance of a type of class at a studio at a time
+     *
+     * @param offer  the type of class
+     * @param studio the studio location
+     * @param time   the time of the classes
+     * @return the number of members and guests
+     */
+    public int getAttendance(Offer offer, Location studio, Time time) {
+        return byOfferStudioTime.get((offer.ordinal() * NUM_LOCATIONS + studio.ordinal()) * NUM_TIMES + time.ordinal());
+    }
+
+    /**
+     * Returns the attendance of a type of class at the studios of a county at a time
+     *
+     * @param offer  the type of class
+     * @param county the county, ignoring case
+     * @param time   the time of the classes
+     * @return the number of members and guests; 0 if no studio is in that county
+     */
+    public int getAttendance(Offer offer, String county, Time time) {
+        int countyIndex = countyIndex(county);
+        if (countyIndex < 0) {
+            return 0;
+        }
+        return byOfferCountyTime.get((offer.ordinal() * COUNTIES.length + countyIndex) * NUM_TIMES + time.ordinal());
+    }
+
+    /**
+     * Returns the attendance of all classes at a studio
+     *
+     * @param studio the studio location
+     * @return the number of members and guests
+     */
+    public int getAttendance(Location studio) {
+        return byStudio.get(studio.ordinal());
+    }
+
+    /**
+     * Returns the attendance of all classes at the studios of a county
+     *
+     * @param county the county, ignoring case
+     * @return the number of members and guests; 0 if no studio is in that county
+     */
+    public int getCountyAttendance(String county) {
+        int countyIndex = countyIndex(county);
+        return countyIndex < 0 ? 0 : byCounty.get(countyIndex);
+    }
+
+    /**
+     * Returns the attendance of all classes of an instructor
+     *
+     * @param instructor the instructor
+     * @return the number of members and guests
+     */
+    public int getAttendance(Instructor instructor) {
+        return byInstructor.get(instructor.ordinal());
+    }
+
+    /**
+     * Returns the attendance of all classes of a type
+     *
+     * @param offer the type of class
+     * @return the number of members and guests
+     */
+    public int getAttendance(Offer offer) {
+        return byOffer.get(offer.ordinal());
+    }
+
+    /**
+     * Returns the attendance of all classes at a time
+     *
+     * @param time the time of the classes
+     * @return the number of members and guests
+     */
+    public int getAttendance(Time time) {
+        return byTime.get(time.ordinal());
+    }
+
+    /**
+     * Returns the attendance of all watched classes
+     *
+     * @return the number of members and guests
+     */
+    public int getTotal() {
+        int total = 0;
+        for (int i = 0; i < byTime.length(); i++) {
+            total += byTime.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Helper method to add to every counter a class contributes to
+     *
+     * @param fitnessClass the class
+     * @param kind         MEMBER or GUEST
+     * @param delta        the number of attendees to add; negative to take away
+     */
+    private void count(FitnessClass fitnessClass, int kind, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        int offer = fitnessClass.getClassInfo().ordinal();
+        int studio = fitnessClass.getStudio().ordinal();
+        int time = fitnessClass.getTime().ordinal();
+        int county = COUNTY_OF_LOCATION[studio];
+        byClass.addAndGet(classIndex(offer, fitnessClass.getInstructor().ordinal(), studio, time, kind), delta);
+        byOfferStudioTime.addAndGet((offer * NUM_LOCATIONS + studio) * NUM_TIMES + time, delta);
+        byOfferCountyTime.addAndGet((offer * COUNTIES.length + county) * NUM_TIMES + time, delta);
+        byStudio.addAndGet(studio, delta);
+        byCounty.addAndGet(county, delta);
+        byInstructor.addAndGet(fitnessClass.getInstructor().ordinal(), delta);
+        byOffer.addAndGet(offer, delta);
+        byTime.addAndGet(time, delta);
+    }
+
+    /**
+     * Helper method to pack the ordinals of a class and the kind of attendee into one index
+     *
+     * @param offer      the ordinal of the type of class
+     * @param instructor the ordinal of the instructor
+     * @param studio     the ordinal of the studio location
+     * @param time       the ordinal of the time
+     * @param kind       MEMBER or GUEST
+     * @return the index into byClass
+     */
+    private static int classIndex(int offer, int instructor, int studio, int time, int kind) {
+        return (((offer * NUM_INSTRUCTORS + instructor) * NUM_LOCATIONS + studio) * NUM_TIMES + time) * 2 + kind;
+    }
+
+    /**
+     * Helper method to find the index of a county
+     *
+     * @param county the county, ignoring case
+     * @return the index of the county; -1 if no studio is in that county
+     */
+    private static int countyIndex(String county) {
+        for (int i = 0; i < COUNTIES.length; i++) {
+            if (COUNTIES[i].equalsIgnoreCase(county)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Helper method to list the distinct counties of the studio locations
+     *
+     * @return the counties, in order of first appearance
+     */
+    private static String[] counties() {
+        ArrayList<String> counties = new ArrayList<>();
+        for (Location location : LOCATIONS) {
+            if (!counties.contains(location.getCounty())) {
+                counties.add(location.getCounty());
+            }
+        }
+        return counties.toArray(new String[0]);
+    }
+
+    /**
+     * Helper method to map each studio location to the index of its county
+     *
+     * @return the county index of each location, by ordinal
+     */
+    private static int[] countyOfLocation() {
+        int[] countyOf = new int[NUM_LOCATIONS];
+        for (Location location : LOCATIONS) {
+            countyOf[location.ordinal()] = countyIndex(location.getCounty());
+        }
+        return countyOf;
+    }
+}
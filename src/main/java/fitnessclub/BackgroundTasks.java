@@ -0,0 +1,100 @@
+package fitnessclub;
+
+import javafx.concurrent.Task;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the background work of the studio manager window on a small fixed pool of daemon threads,
+ * so at most MAX_RUNNING tasks run at once and the rest wait their turn in order. The JavaFX
+ * application thread never runs a load, a billing run or a table refresh itself; the tasks
+ * report back to it through their own properties and event handlers.
+ * The tasks submitted are tracked until they finish so they can all be cancelled at once.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class BackgroundTasks implements Executor, AutoCloseable {
+    private static final int MAX_RUNNING = 2;
+
+    private final ExecutorService pool;
+    private final Set<Task<?>> active;
+
+    /**
+     * Parameterized constructor requires 1 parameter to create a BackgroundTasks
+     *
+     * @param name the name of the threads, numbered from 1
+     */
+    public BackgroundTasks(String name) {
+        AtomicInteger numThreads = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(MAX_RUNNING, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + numThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        active = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Runs a task on the pool, tracking it until it finishes so cancelAll can reach it
+     *
+     * @param task the task to run
+     * @return the task, to bind to its progress and message
+     */
+    public <V> Task<V> submit(Task<V> task) {
+        active.add(task);
+        pool.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                active.remove(task);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Runs a piece of work on the pool. A Task passed here is tracked like with submit
+     *
+     * @param command the work to run
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof Task<?> task) {
+            submit(task);
+        } else {
+            pool.execute(command);
+        }
+    }
+
+    /**
+     * Cancels every task submitted that has not finished, whether it is running or waiting
+     */
+    public void cancelAll() {
+        for (Task<?> task : active) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Returns the number of tasks submitted that have not finished
+     *
+     * @return the number of tasks running or waiting
+     */
+    public int getNumActive() {
+        return active.size();
+    }
+
+    /**
+     * Cancels every task and stops the threads
+     */
+    @Override
+    public void close() {
+        cancelAll();
+        pool.shutdownNow();
+    }
+}
@@ -38,9 +38,19 @@ public class Basic extends Member {
 
     /**
      * Increments the number of classes attended by the member.
+     *
+     * @throws RuntimeException when a listener refuses the change; the count is set back
      */
     public void addClass() {
         numClasses++;
+        if (getListener() != null) {
+            try {
+                getListener().classAttended(this);
+            } catch (RuntimeException e) {
+                numClasses--;
+                throw e;
+            }
+        }
     }
 
     /**
@@ -50,6 +60,16 @@ public class Basic extends Member {
      */
     @Override
     public double bill() {
+        return billFor(numClasses);
+    }
+
+    /**
+     * Calculates the fee for a Basic membership that attended a given number of classes
+     *
+     * @param numClasses the number of classes attended
+     * @return the total bill amount
+     */
+    static double billFor(int numClasses) {
         double billAmount = MONTH_FEE;
         if (numClasses > CLASSES_LIMIT) {
             billAmount += ADDITIONAL_CHARGE * (numClasses - CLASSES_LIMIT);
@@ -58,14 +78,16 @@ public class Basic extends Member {
     }
 
     /**
-     * Returns a string representation of a Basic member object.
+     * Appends the string representation of a Basic member object.
      * Shows dynamic binding (polymorphism)
      *
-     * @return a string representation of the Basic member
+     * @param out   the builder to append to
+     * @param today the date to check the expiration against
+     * @return the builder
      */
     @Override
-    public String toString() {
-        return super.toString()
-                + ", (Basic) number of classes attended: " + this.getNumClasses();
+    public StringBuilder appendTo(StringBuilder out, Date today) {
+        return super.appendTo(out, today)
+                .append(", (Basic) number of classes attended: ").append(this.getNumClasses());
     }
 }
\ No newline at end of file
@@ -0,0 +1,268 @@
+package fitnessclub;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the next dues of every member in parallel and totals them per studio location,
+ * per county and per membership type. Ranges of members are billed on the common fork/join
+ * pool and their totals merged; amounts are added up in whole cents, so the totals do not
+ * depend on how the work was split.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class BillingRun {
+    private static final int LEAF_MEMBERS = 4096;
+    private static final double CENTS_PER_DOLLAR = 100.0;
+    private static final Location[] LOCATIONS = Location.values();
+
+    private final long[] centsByLocation;
+    private final int[] countByLocation;
+    private final long[] centsByType;
+    private final int[] countByType;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates a run with every total at zero
+     */
+    private BillingRun() {
+        centsByLocation = new long[LOCATIONS.length];
+        countByLocation = new int[LOCATIONS.length];
+        centsByType = new long[MemberStore.NUM_TYPES];
+        countByType = new int[MemberStore.NUM_TYPES];
+    }
+
+    /**
+     * Bills every member of a list
+     *
+     * @param members the members to bill
+     * @param sink    receives the due amount of each member, from several threads;
+     *                null if only the totals are needed
+     * @return the totals of the run
+     */
+    public static BillingRun run(MemberList members, BillingSink sink) {
+        return ForkJoinPool.commonPool().invoke(new ListTask(members.getMembers(), 0, members.getSize(), sink));
+    }
+
+    /**
+     * Bills every member of a columnar store, reading only its type, counter and studio columns
+     *
+     * @param store the members to bill
+     * @return the totals of the run
+     */
+    public static BillingRun run(MemberStore store) {
+        return ForkJoinPool.commonPool().invoke(new StoreTask(store, 0, store.getSize()));
+    }
+
+    /**
+     * Returns the total due from all members
+     *
+     * @return the total amount due
+     */
+    public double getTotal() {
+        long cents = 0;
+        for (long locationCents : centsByLocation) {
+            cents += locationCents;
+        }
+        return cents / CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Returns the number of members billed
+     *
+     * @return the number of members billed
+     */
+    public int getCount() {
+        int count = 0;
+        for (int locationCount : countByLocation) {
+            count += locationCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total due from the members of a home studio
+     *
+     * @param location the home studio
+     * @return the total amount due from its members
+     */
+    public double getTotal(Location location) {
+        return centsByLocation[location.ordinal()] / CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Returns the number of members billed with a given home studio
+     *
+     * @param location the home studio
+     * @return the number of its members billed
+     */
+    public int getCount(Location location) {
+        return countByLocation[location.ordinal()];
+    }
+
+    /**
+     * Returns the total due from the members of a membership type
+     *
+     * @param type MemberStore.BASIC, FAMILY or PREMIUM
+     * @return the total amount due from members of that type
+     */
+    public double getTotal(byte type) {
+        return centsByType[type] / CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Returns the number of members billed with a given membership type
+     *
+     * @param type MemberStore.BASIC, FAMILY or PREMIUM
+     * @return the number of members of that type billed
+     */
+    public int getCount(byte type) {
+        return countByType[type];
+    }
+
+    /**
+     * Returns the total due from the members of each county
+     *
+     * @return the total amount due by county name, in alphabetical order of county
+     */
+    public Map<String, Double> getCountyTotals() {
+        TreeMap<String, Long> cents = new TreeMap<>();
+        for (Location location : LOCATIONS) {
+            cents.merge(location.getCounty(), centsByLocation[location.ordinal()], Long::sum);
+        }
+        TreeMap<String, Double> totals = new TreeMap<>();
+        for (Map.Entry<String, Long> county : cents.entrySet()) {
+            totals.put(county.getKey(), county.getValue() / CENTS_PER_DOLLAR);
+        }
+        return totals;
+    }
+
+    /**
+     * Helper method to add one member's due amount to the totals
+     *
+     * @param location the home studio of the member
+     * @param type     the membership type of the member
+     * @param due      the due amount of the member
+     */
+    private void add(int location, int type, double due) {
+        long cents = Math.round(due * CENTS_PER_DOLLAR);
+        centsByLocation[location] += cents;
+        countByLocation[location]++;
+        centsByType[type] += cents;
+        countByType[type]++;
+    }
+
+    /**
+     * Helper method to add the totals of another run into this one
+     *
+     * @param other the run to merge in
+     * @return this run
+     */
+    private BillingRun merge(BillingRun other) {
+        for (int i = 0; i < centsByLocation.length; i++) {
+            centsByLocation[i] += other.centsByLocation[i];
+            countByLocation[i] += other.countByLocation[i];
+        }
+        for (int i = 0; i < centsByType.length; i++) {
+            centsByType[i] += other.centsByType[i];
+            countByType[i] += other.countByType[i];
+        }
+        return this;
+    }
+
+    /**
+     * Fork/join task that bills a range of a member array
+     */
+    private static class ListTask extends RecursiveTask<BillingRun> {
+        private final Member[] members;
+        private final int start;
+        private final int end;
+        private final BillingSink sink;
+
+        /**
+         * Parameterized constructor requires 4 parameters to create a ListTask
+         *
+         * @param members the member array
+         * @param start   the index of the first member to bill
+         * @param end     the index just past the last member to bill
+         * @param sink    receives each due amount; may be null
+         */
+        ListTask(Member[] members, int start, int end, BillingSink sink) {
+            this.members = members;
+            this.start = start;
+            this.end = end;
+            this.sink = sink;
+        }
+
+        /**
+         * Bills the range, splitting it in half while it is larger than a leaf
+         *
+         * @return the totals of the range
+         */
+        @Override
+        protected BillingRun compute() {
+            if (end - start > LEAF_MEMBERS) {
+                int middle = (start + end) >>> 1;
+                ListTask left = new ListTask(members, start, middle, sink);
+                left.fork();
+                BillingRun right = new ListTask(members, middle, end, sink).compute();
+                return left.join().merge(right);
+            }
+            BillingRun run = new BillingRun();
+            for (int i = start; i < end; i++) {
+                Member member = members[i];
+                double due = member.bill();
+                run.add(member.getHomeStudio().ordinal(), MemberStore.typeOf(member), due);
+                if (sink != null) {
+                    sink.billed(member, due);
+                }
+            }
+            return run;
+        }
+    }
+
+    /**
+     * Fork/join task that bills a range of rows of a columnar store
+     */
+    private static class StoreTask extends RecursiveTask<BillingRun> {
+        private final MemberStore store;
+        private final int start;
+        private final int end;
+
+        /**
+         * Parameterized constructor requires 3 parameters to create a StoreTask
+         *
+         * @param store the member store
+         * @param start the first row to bill
+         * @param end   the row just past the last row to bill
+         */
+        StoreTask(MemberStore store, int start, int end) {
+            this.store = store;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Bills the rows, splitting them in half while there are more than a leaf
+         *
+         * @return the totals of the rows
+         */
+        @Override
+        protected BillingRun compute() {
+            if (end - start > LEAF_MEMBERS) {
+                int middle = (start + end) >>> 1;
+                StoreTask left = new StoreTask(store, start, middle);
+                left.fork();
+                BillingRun right = new StoreTask(store, middle, end).compute();
+                return left.join().merge(right);
+            }
+            BillingRun run = new BillingRun();
+            for (int i = start; i < end; i++) {
+                run.add(store.getHomeStudio(i).ordinal(), store.getType(i), store.bill(i));
+            }
+            return run;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package fitnessclub;
+
+/**
+ * Receives the next due amount of each member during a billing run.
+ * A billing run calls the sink from several threads at once and in no particular order,
+ * so implementations must be thread-safe.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public interface BillingSink {
+
+    /**
+     * Called once for every member billed
+     *
+     * @param member the member billed
+     * @param due    the next due amount of the member
+     */
+    void billed(Member member, double due);
+}
@@ -0,0 +1,207 @@
+package fitnessclub;
+
+/**
+ * Tracks which instructor teaches at each time slot and how busy each studio is, as classes
+ * are booked into a schedule. An instructor can teach only one class per time slot, at one
+ * studio, so a class whose instructor is already booked at its time is rejected as a double
+ * booking. Bookings are kept in dense arrays indexed by the ordinals of Instructor, Location
+ * and Time, so conflict checks and utilization queries never scan the schedule.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class BookingEngine {
+    private static final int NUM_INSTRUCTORS = Instructor.values().length;
+    private static final int NUM_LOCATIONS = Location.values().length;
+    private static final int NUM_TIMES = Time.values().length;
+
+    private final FitnessClass[] byInstructorTime; //class each instructor teaches at each time
+    private final int[] classesByStudioTime;
+    private final int[] classesByStudio;
+    private final int[] busySlotsByStudio; //time slots with at least one class
+    private final int[] classesByInstructor;
+    private int numClasses;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates an engine with nothing booked
+     */
+    public BookingEngine() {
+        byInstructorTime = new FitnessClass[NUM_INSTRUCTORS * NUM_TIMES];
+        classesByStudioTime = new int[NUM_LOCATIONS * NUM_TIMES];
+        classesByStudio = new int[NUM_LOCATIONS];
+        busySlotsByStudio = new int[NUM_LOCATIONS];
+        classesByInstructor = new int[NUM_INSTRUCTORS];
+        numClasses = 0;
+    }
+
+    /**
+     * Books a class unless its instructor already teaches at its time
+     *
+     * @param fitnessClass the class to book
+     * @return true if the class is booked; false if it would double-book its instructor
+     */
+    boolean book(FitnessClass fitnessClass) {
+        int slot = instructorSlot(fitnessClass.getInstructor(), fitnessClass.getTime());
+        if (byInstructorTime[slot] != null) {
+            return false;
+        }
+        byInstructorTime[slot] = fitnessClass;
+        int studio = fitnessClass.getStudio().ordinal();
+        if (classesByStudioTime[studioSlot(fitnessClass.getStudio(), fitnessClass.getTime())]++ == 0) {
+            busySlotsByStudio[studio]++;
+        }
+        classesByStudio[studio]++;
+        classesByInstructor[fitnessClass.getInstructor().ordinal()]++;
+        numClasses++;
+        return true;
+    }
+
+    /**
+     * Frees the time slot of a booked class
+     *
+     * @param fitnessClass the class to release
+     * @return true if the class was booked and is released; false otherwise
+     */
+    boolean release(FitnessClass fitnessClass) {
+        int slot = instructorSlot(fitnessClass.getInstructor(), fitnessClass.getTime());
+        if (byInstructorTime[slot] != fitnessClass) {
+            return false;
+        }
+        byInstructorTime[slot] = null;
+        int studio = fitnessClass.getStudio().ordinal();
+        if (--classesByStudioTime[studioSlot(fitnessClass.getStudio(), fitnessClass.getTime())] == 0) {
+            busySlotsByStudio[studio]--;
+        }
+        classesByStudio[studio]--;
+        classesByInstructor[fitnessClass.getInstructor().ordinal()]--;
+        numClasses--;
+        return true;
+    }
+
+    /**
+     * Finds the booked class a class would conflict with
+     *
+     * @param fitnessClass the class to check
+     * @return the class its instructor already teaches at its time; null if there is none
+     */
+    public FitnessClass conflictOf(FitnessClass fitnessClass) {
+        FitnessClass booked = byInstructorTime[instructorSlot(fitnessClass.getInstructor(), fitnessClass.getTime())];
+        return booked == fitnessClass ? null : booked;
+    }
+
+    /**
+     * Finds the class an instructor teaches at a time
+     *
+     * @param instructor the instructor
+     * @param time       the time slot
+     * @return the class; null if the instructor is free then
+     */
+    public FitnessClass bookingOf(Instructor instructor, Time time) {
+        return byInstructorTime[instructorSlot(instructor, time)];
+    }
+
+    /**
+     * Determines if an instructor is free at a time
+     *
+     * @param instructor the instructor
+     * @param time       the time slot
+     * @return true if the instructor teaches no class then; false otherwise
+     */
+    public boolean isFree(Instructor instructor, Time time) {
+        return byInstructorTime[instructorSlot(instructor, time)] == null;
+    }
+
+    /**
+     * A getter method returns the number of classes booked
+     *
+     * @return the number of classes
+     */
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    /**
+     * Returns the number of classes at a studio at a time
+     *
+     * @param studio the studio location
+     * @param time   the time slot
+     * @return the number of classes held there then
+     */
+    public int getClasses(Location studio, Time time) {
+        return classesByStudioTime[studioSlot(studio, time)];
+    }
+
+    /**
+     * Returns the number of classes at a studio
+     *
+     * @param studio the studio location
+     * @return the number of classes held there over the day
+     */
+    public int getClasses(Location studio) {
+        return classesByStudio[studio.ordinal()];
+    }
+
+    /**
+     * Returns the number of classes an instructor teaches
+     *
+     * @param instructor the instructor
+     * @return the number of classes over the day
+     */
+    public int getClasses(Instructor instructor) {
+        return classesByInstructor[instructor.ordinal()];
+    }
+
+    /**
+     * Returns the share of the time slots in which a studio holds at least one class
+     *
+     * @param studio the studio location
+     * @return the busy time slots over all time slots, from 0 to 1
+     */
+    public double getUtilization(Location studio) {
+        return (double) busySlotsByStudio[studio.ordinal()] / NUM_TIMES;
+    }
+
+    /**
+     * Returns the share of the time slots in which an instructor teaches
+     *
+     * @param instructor the instructor
+     * @return the booked time slots over all time slots, from 0 to 1
+     */
+    public double getUtilization(Instructor instructor) {
+        return (double) classesByInstructor[instructor.ordinal()] / NUM_TIMES;
+    }
+
+    /**
+     * Returns the share of the instructors teaching at a studio at a time, out of all the
+     * instructors who could teach there then
+     *
+     * @param studio the studio location
+     * @param time   the time slot
+     * @return the classes at the studio then over the number of instructors, from 0 to 1
+     */
+    public double getUtilization(Location studio, Time time) {
+        return (double) classesByStudioTime[studioSlot(studio, time)] / NUM_INSTRUCTORS;
+    }
+
+    /**
+     * Helper method to pack an instructor and a time into one index
+     *
+     * @param instructor the instructor
+     * @param time       the time slot
+     * @return the index into byInstructorTime
+     */
+    private static int instructorSlot(Instructor instructor, Time time) {
+        return instructor.ordinal() * NUM_TIMES + time.ordinal();
+    }
+
+    /**
+     * Helper method to pack a studio and a time into one index
+     *
+     * @param studio the studio location
+     * @param time   the time slot
+     * @return the index into classesByStudioTime
+     */
+    private static int studioSlot(Location studio, Time time) {
+        return studio.ordinal() * NUM_TIMES + time.ordinal();
+    }
+}
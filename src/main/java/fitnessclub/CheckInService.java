@@ -0,0 +1,328 @@
+package fitnessclub;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks members and their guests into fitness classes for many kiosks at once.
+ * Each request runs on its own virtual thread, which checks the membership and queues the
+ * request on its class. Whichever thread finds a class idle drains that class's queue in
+ * batches, so the enrollments of one class are applied by one thread at a time without locks,
+ * while different classes are filled in parallel. A guest is only added after the member's
+ * guest pass is taken with a compare-and-set, so passes are never over-issued even when the
+ * same member checks guests into several classes at once. Queues are kept per class object,
+ * not per equal class, and a queue is dropped once it is drained empty.
+ * A request that fails, for example because a listener refuses the enrollment, completes its
+ * future exceptionally without holding up the rest of its batch.
+ * While the service is running, the classes it fills should only be changed through
+ * runExclusive. Requests for a class that was given a replacement are passed on to the
+ * replacement.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class CheckInService implements AutoCloseable {
+    private static final int MAX_BATCH = 256;
+
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<ClassKey, ClassQueue> queues;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates a service that starts a virtual thread per request
+     */
+    public CheckInService() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        queues = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Checks a member into a fitness class
+     *
+     * @param fitnessClass the class to attend
+     * @param member       the member checking in
+     * @return a future completed with the outcome once the request is applied
+     */
+    public CompletableFuture<CheckInStatus> checkIn(FitnessClass fitnessClass, Member member) {
+        return submit(fitnessClass, new Request(member, false, null));
+    }
+
+    /**
+     * Checks the guest of a member into a fitness class, using one of the member's guest passes
+     *
+     * @param fitnessClass the class the guest attends
+     * @param member       the member bringing the guest
+     * @return a future completed with the outcome once the request is applied
+     */
+    public CompletableFuture<CheckInStatus> checkInGuest(FitnessClass fitnessClass, Member member) {
+        return submit(fitnessClass, new Request(member, true, null));
+    }
+
+    /**
+     * Runs a change to a fitness class in line with its check-ins. The change runs on the thread
+     * draining the class's queue, after the requests already queued for the class and before
+     * the ones queued later, so no check-in is applied to the class while it runs.
+     * The change is queued on the calling thread, which may run it itself
+     *
+     * @param fitnessClass the class to change
+     * @param change       the change to run
+     * @return a future completed once the change has run, exceptionally if it threw
+     */
+    public CompletableFuture<Void> runExclusive(FitnessClass fitnessClass, Runnable change) {
+        Request request = new Request(null, false, change);
+        enqueue(fitnessClass, request);
+        return request.result.thenAccept(status -> { });
+    }
+
+    /**
+     * Stops taking requests and waits until every request already made is applied
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Helper method to run a request on a new virtual thread
+     *
+     * @param fitnessClass the class of the request
+     * @param request      the request
+     * @return the future of the request
+     */
+    private CompletableFuture<CheckInStatus> submit(FitnessClass fitnessClass, Request request) {
+        executor.execute(() -> {
+            if (request.member.isExpired(new Date())) {
+                request.result.complete(CheckInStatus.EXPIRED);
+                return;
+            }
+            enqueue(fitnessClass, request);
+        });
+        return request.result;
+    }
+
+    /**
+     * Helper method to queue a request on its class and drain the queue if no other thread is.
+     * The request is added inside the map's compute for the class, and the queue is dropped
+     * there once it is idle, so a request is never added to a queue that was dropped
+     *
+     * @param fitnessClass the class of the request
+     * @param request      the request
+     */
+    private void enqueue(FitnessClass fitnessClass, Request request) {
+        ClassKey key = new ClassKey(fitnessClass);
+        ClassQueue queue = queues.compute(key, (k, existing) -> {
+            ClassQueue queued = existing == null ? new ClassQueue(fitnessClass) : existing;
+            queued.pending.add(request);
+            return queued;
+        });
+        queue.drainIfIdle();
+        queues.computeIfPresent(key, (k, existing) -> existing.isIdle() ? null : existing);
+    }
+
+    /**
+     * A map key comparing fitness classes by identity, so requests for two equal class
+     * objects are never applied to the wrong one
+     */
+    private static final class ClassKey {
+        private final FitnessClass fitnessClass;
+
+        /**
+         * Parameterized constructor requires 1 parameter to create a ClassKey
+         *
+         * @param fitnessClass the class the key stands for
+         */
+        ClassKey(FitnessClass fitnessClass) {
+            this.fitnessClass = fitnessClass;
+        }
+
+        /**
+         * Determines if two keys stand for the same class object
+         *
+         * @param obj the key to be compared
+         * @return true if both keys hold the same class object; false otherwise
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ClassKey key && key.fitnessClass == fitnessClass;
+        }
+
+        /**
+         * Returns a hash code consistent with equals, based on the identity of the class
+         *
+         * @return the hash code of the key
+         */
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(fitnessClass);
+        }
+    }
+
+    /**
+     * One check-in of a member or of a member's guest, or one change run in line with them
+     */
+    private static class Request {
+        private final Member member;
+        private final boolean guest;
+        private final Runnable change;
+        private final CompletableFuture<CheckInStatus> result;
+
+        /**
+         * Parameterized constructor requires 3 parameters to create a Request
+         *
+         * @param member the member checking in, or bringing the guest; null for a change
+         * @param guest  true to check in the member's guest; false for the member
+         * @param change the change to run instead of a check-in; null for a check-in
+         */
+        Request(Member member, boolean guest, Runnable change) {
+            this.member = member;
+            this.guest = guest;
+            this.change = change;
+            this.result = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * The requests waiting for one fitness class, applied by one thread at a time
+     */
+    private class ClassQueue {
+        private final FitnessClass fitnessClass;
+        private final ConcurrentLinkedQueue<Request> pending;
+        private final AtomicBoolean draining;
+
+        /**
+         * Parameterized constructor requires 1 parameter to create a ClassQueue
+         *
+         * @param fitnessClass the class the requests are for
+         */
+        ClassQueue(FitnessClass fitnessClass) {
+            this.fitnessClass = fitnessClass;
+            pending = new ConcurrentLinkedQueue<>();
+            draining = new AtomicBoolean();
+        }
+
+        /**
+         * Drains the queue on the calling thread if no other thread is.
+         * Requests are added to the queue only inside the map's compute for its class
+         */
+        void drainIfIdle() {
+            while (!pending.isEmpty() && draining.compareAndSet(false, true)) {
+                try {
+                    drain();
+                } finally {
+                    draining.set(false);
+                }
+            }
+        }
+
+        /**
+         * Determines if the queue can be dropped from the map
+         *
+         * @return true if no request is waiting and no thread is draining; false otherwise
+         */
+        boolean isIdle() {
+            return pending.isEmpty() && !draining.get();
+        }
+
+        /**
+         * Helper method to apply the queued requests in batches until the queue is empty.
+         * The futures of a batch are completed after the whole batch is applied, even when
+         * applying one of them failed. Once the class has a replacement, the requests left
+         * are queued on the replacement instead
+         */
+        private void drain() {
+            Request[] batch = new Request[MAX_BATCH];
+            CheckInStatus[] statuses = new CheckInStatus[MAX_BATCH];
+            RuntimeException[] failures = new RuntimeException[MAX_BATCH];
+            int count;
+            do {
+                count = 0;
+                try {
+                    Request request;
+                    while (count < MAX_BATCH && (request = pending.poll()) != null) {
+                        FitnessClass replacement = fitnessClass.getReplacement();
+                        if (replacement != null) {
+                            enqueue(replacement, request);
+                            continue;
+                        }
+                        batch[count] = request;
+                        try {
+                            statuses[count] = apply(request);
+                        } catch (RuntimeException e) {
+                            failures[count] = e;
+                        }
+                        count++;
+                    }
+                } finally {
+                    complete(batch, statuses, failures, count);
+                }
+            } while (count == MAX_BATCH);
+        }
+
+        /**
+         * Helper method to complete the futures of a batch and clear the batch for reuse.
+         * A request taken from the queue but not applied was cut short by an error, and fails
+         *
+         * @param batch    the requests taken from the queue
+         * @param statuses the outcome of each request
+         * @param failures the exception thrown when applying each request
+         * @param count    the number of requests applied
+         */
+        private void complete(Request[] batch, CheckInStatus[] statuses, RuntimeException[] failures, int count) {
+            for (int i = 0; i < count; i++) {
+                if (failures[i] != null) {
+                    batch[i].result.completeExceptionally(failures[i]);
+                } else {
+                    batch[i].result.complete(statuses[i]);
+                }
+                batch[i] = null;
+                statuses[i] = null;
+                failures[i] = null;
+            }
+            if (count < MAX_BATCH && batch[count] != null) {
+                batch[count].result.completeExceptionally(new IllegalStateException("request was not applied"));
+                batch[count] = null;
+            }
+        }
+
+        /**
+         * Helper method to apply one request to the class
+         *
+         * @param request the request to apply
+         * @return the outcome of the request; null for a change
+         */
+        private CheckInStatus apply(Request request) {
+            if (request.change != null) {
+                request.change.run();
+                return null;
+            }
+            Member member = request.member;
+            if (!request.guest) {
+                if (fitnessClass.isEnrolled(member)) {
+                    return CheckInStatus.ALREADY_CHECKED_IN;
+                }
+                fitnessClass.addMember(member);
+                return fitnessClass.isEnrolled(member) ? CheckInStatus.CHECKED_IN : CheckInStatus.ALREADY_CHECKED_IN;
+            }
+            if (fitnessClass.hasGuest(member)) {
+                return CheckInStatus.ALREADY_CHECKED_IN;
+            }
+            if (!member.tryUseGuestPass()) {
+                return CheckInStatus.NO_GUEST_PASS;
+            }
+            try {
+                fitnessClass.addGuest(member);
+            } catch (RuntimeException e) {
+                member.returnGuestPass();
+                throw e;
+            }
+            if (!fitnessClass.hasGuest(member)) {
+                member.returnGuestPass();
+                return CheckInStatus.ALREADY_CHECKED_IN;
+            }
+            return CheckInStatus.CHECKED_IN;
+        }
+    }
+}
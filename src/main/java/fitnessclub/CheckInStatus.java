@@ -0,0 +1,13 @@
+package fitnessclub;
+
+/**
+ * Enum class representing the outcome of a check-in request to a fitness class.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public enum CheckInStatus {
+    CHECKED_IN,
+    ALREADY_CHECKED_IN,
+    EXPIRED,
+    NO_GUEST_PASS;
+}
@@ -0,0 +1,187 @@
+package fitnessclub;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A member list that many front-desk terminals can read and update at the same time.
+ * Lookups by profile read a concurrent hash map without locking. Adds and removes lock only
+ * the stripe their profile hashes to, so updates to different members run in parallel.
+ * Members keep the order they were added in, the same as MemberList.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class ConcurrentMemberList {
+    private static final int STRIPES = 64;
+
+    private final ConcurrentHashMap<Profile, Entry> byProfile;
+    private final ConcurrentSkipListMap<Long, Member> bySequence; //insertion order
+    private final AtomicLong nextSequence;
+    private final ReentrantLock[] locks;
+
+    /**
+     * Default constructor/no-argument constructor
+     */
+    public ConcurrentMemberList() {
+        byProfile = new ConcurrentHashMap<>();
+        bySequence = new ConcurrentSkipListMap<>();
+        nextSequence = new AtomicLong();
+        locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Creates a concurrent list holding the members of a list, in the same order
+     *
+     * @param list the list of members to copy
+     * @return a new concurrent list with the same members
+     */
+    public static ConcurrentMemberList of(MemberList list) {
+        ConcurrentMemberList concurrentList = new ConcurrentMemberList();
+        for (int i = 0; i < list.getSize(); i++) {
+            concurrentList.add(list.getMembers()[i]);
+        }
+        return concurrentList;
+    }
+
+    /**
+     * A getter method returns the size of the member list
+     *
+     * @return the number of members in the list at the time of the call
+     */
+    public int getSize() {
+        return byProfile.size();
+    }
+
+    /**
+     * Checks if the list of members contains a given member
+     *
+     * @param member the member to check
+     * @return true if member is in the list; false otherwise
+     */
+    public boolean contains(Member member) {
+        return byProfile.containsKey(member.getProfile());
+    }
+
+    /**
+     * Checks if the list of members contains a given profile
+     *
+     * @param profile the profile to check
+     * @return true if profile of the member is in the list; false otherwise
+     */
+    public boolean containsProfile(Profile profile) {
+        return byProfile.containsKey(profile);
+    }
+
+    /**
+     * Retrieves the member from the list when given just a profile
+     *
+     * @param profile the profile of the member to be found
+     * @return the Member needed to be retrieved from a given profile; null if not in the list
+     */
+    public Member getMemberFromProfile(Profile profile) {
+        Entry entry = byProfile.get(profile);
+        if (entry == null) {
+            return null;
+        }
+        return entry.member;
+    }
+
+    /**
+     * Adds a new member to the list of members
+     *
+     * @param member the member to add
+     * @return true if the member is new and is added; false if member already exists
+     */
+    public boolean add(Member member) {
+        ReentrantLock lock = lockFor(member.getProfile());
+        lock.lock();
+        try {
+            Entry entry = new Entry(nextSequence.getAndIncrement(), member);
+            if (byProfile.putIfAbsent(member.getProfile(), entry) != null) {
+                return false;
+            }
+            bySequence.put(entry.sequence, member);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a member from the list of members
+     *
+     * @param member the member to remove
+     * @return true if the member was in the list and is removed; false otherwise
+     */
+    public boolean remove(Member member) {
+        ReentrantLock lock = lockFor(member.getProfile());
+        lock.lock();
+        try {
+            Entry entry = byProfile.remove(member.getProfile());
+            if (entry == null) {
+                return false;
+            }
+            bySequence.remove(entry.sequence);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the members in the order they were added.
+     * The array is a weakly consistent copy: changes made while it is built may or may not be in it
+     *
+     * @return an array of the members
+     */
+    public Member[] getMembers() {
+        return bySequence.values().toArray(new Member[0]);
+    }
+
+    /**
+     * Copies the members into a MemberList, in the order they were added
+     *
+     * @return a new MemberList with the same members
+     */
+    public MemberList toMemberList() {
+        Member[] members = getMembers();
+        MemberList list = new MemberList(members.length);
+        list.addAll(members, members.length);
+        return list;
+    }
+
+    /**
+     * Helper method to pick the lock guarding updates to a profile
+     *
+     * @param profile the profile being added or removed
+     * @return the lock of the stripe the profile hashes to
+     */
+    private ReentrantLock lockFor(Profile profile) {
+        int hash = profile.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * A member together with the sequence number it was added with
+     */
+    private static class Entry {
+        private final long sequence;
+        private final Member member;
+
+        /**
+         * Parameterized constructor requires 2 parameters to create an Entry
+         *
+         * @param sequence the position of the member in insertion order
+         * @param member   the member
+         */
+        Entry(long sequence, Member member) {
+            this.sequence = sequence;
+            this.member = member;
+        }
+    }
+}
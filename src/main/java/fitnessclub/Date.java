@@ -1,10 +1,12 @@
 package fitnessclub;
 
 import java.util.Calendar;
-import java.util.StringTokenizer;
 
 /**
- * This class creates and defines the properties of a Date object
+ * This class creates and defines the properties of a Date object.
+ * A Date is immutable and packs its year, month and day into one int, year in the high bits,
+ * so two dates compare and hash as plain ints. Months and days out of range are kept as an
+ * out-of-range value, so an invalid date stays invalid
  *
  * @author Ved Patel, Vivek Manthri
  */
@@ -26,10 +28,17 @@ public class Date implements Comparable<Date> {
     public static final int SEP = 9;
     public static final int NOV = 11;
     public static final int VALID_AGE = 18;
+    private static final int DAYS_PER_ERA = 146097;
+    private static final int YEARS_PER_ERA = 400;
+    private static final int DAYS_FROM_0000_03_01_TO_EPOCH = 719468;
+    private static final int DAY_BITS = 7;
+    private static final int MONTH_BITS = 7;
+    private static final int FIELD_MASK = (1 << DAY_BITS) - 1;
+    private static final int MALFORMED = -1;
+    private static final int DECIMAL = 10;
+    private static final int MAX_PARSED = 99999; //longer numbers are capped so they cannot overflow
 
-    private int year;
-    private int month;
-    private int day;
+    private final int packed; //year << 14 | month << 7 | day
 
     /**
      * Default constructor/no-argument constructor.
@@ -42,9 +51,7 @@ public class Date implements Comparable<Date> {
         int currentMonth = calendarInstance.get(Calendar.MONTH) + 1;
         int currentDay = calendarInstance.get(Calendar.DAY_OF_MONTH);
 
-        this.year = currentYear;
-        this.month = currentMonth;
-        this.day = currentDay;
+        this.packed = pack(currentMonth, currentDay, currentYear);
 
     }
 
@@ -54,10 +61,141 @@ public class Date implements Comparable<Date> {
      * @param date a string of a date in the format mm/dd/yyyy
      */
     public Date(String date) {
-        StringTokenizer stringTokenizer = new StringTokenizer(date);
-        this.month = Integer.parseInt(stringTokenizer.nextToken("/"));
-        this.day = Integer.parseInt(stringTokenizer.nextToken("/"));
-        this.year = Integer.parseInt(stringTokenizer.nextToken());
+        this(checkFormat(parsePacked(date, 0, date.length()), date));
+    }
+
+    /**
+     * Parameterized constructor requires 3 parameters to create a Date object
+     *
+     * @param month the month, 1 to 12
+     * @param day   the day of the month
+     * @param year  the year
+     */
+    public Date(int month, int day, int year) {
+        this.packed = pack(month, day, year);
+    }
+
+    /**
+     * Helper constructor to create a Date from its packed int
+     *
+     * @param packed the year, month and day packed by pack
+     */
+    private Date(int packed) {
+        this.packed = packed;
+    }
+
+    /**
+     * Parses a date in the format mm/dd/yyyy from part of a character sequence,
+     * reading the digits in place without splitting the text
+     *
+     * @param text  the text holding the date
+     * @param start the index of the first character of the date
+     * @param end   the index just past the date
+     * @return the parsed date; null if the text is not in the expected format
+     */
+    public static Date parse(CharSequence text, int start, int end) {
+        int packed = parsePacked(text, start, end);
+        if (packed == MALFORMED) {
+            return null;
+        }
+        return new Date(packed);
+    }
+
+    /**
+     * Helper method to parse a date in the format mm/dd/yyyy into its packed int
+     *
+     * @param text  the text holding the date
+     * @param start the index of the first character of the date
+     * @param end   the index just past the date
+     * @return the packed date; MALFORMED if the text is not in the expected format
+     */
+    private static int parsePacked(CharSequence text, int start, int end) {
+        int month = 0;
+        int day = 0;
+        int year = 0;
+        int part = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (part == 0) {
+                    month = Math.min(month * DECIMAL + digit, MAX_PARSED);
+                } else if (part == 1) {
+                    day = Math.min(day * DECIMAL + digit, MAX_PARSED);
+                } else {
+                    year = Math.min(year * DECIMAL + digit, MAX_PARSED);
+                }
+                digits++;
+            } else if (c == '/' && digits > 0 && part < 2) {
+                part++;
+                digits = 0;
+            } else {
+                return MALFORMED;
+            }
+        }
+        if (part != 2 || digits == 0) {
+            return MALFORMED;
+        }
+        return pack(month, day, year);
+    }
+
+    /**
+     * Helper method to reject a date that could not be parsed
+     *
+     * @param packed the packed date, or MALFORMED
+     * @param text   the text the date was parsed from
+     * @return the packed date
+     * @throws NumberFormatException if the text was not in the format mm/dd/yyyy
+     */
+    private static int checkFormat(int packed, String text) {
+        if (packed == MALFORMED) {
+            throw new NumberFormatException("Not a date in the format mm/dd/yyyy: " + text);
+        }
+        return packed;
+    }
+
+    /**
+     * Helper method to pack a year, month and day into one int that orders like the date.
+     * A month or day that does not fit is stored as the largest field value, which no
+     * calendar date has
+     *
+     * @param month the month
+     * @param day   the day of the month
+     * @param year  the year
+     * @return the packed date
+     */
+    private static int pack(int month, int day, int year) {
+        int packedMonth = month < 0 || month > FIELD_MASK ? FIELD_MASK : month;
+        int packedDay = day < 0 || day > FIELD_MASK ? FIELD_MASK : day;
+        return (year << (MONTH_BITS + DAY_BITS)) | (packedMonth << DAY_BITS) | packedDay;
+    }
+
+    /**
+     * A getter method returns the year of the date
+     *
+     * @return the year
+     */
+    public int getYear() {
+        return packed >> (MONTH_BITS + DAY_BITS);
+    }
+
+    /**
+     * A getter method returns the month of the date
+     *
+     * @return the month, 1 to 12
+     */
+    public int getMonth() {
+        return (packed >> DAY_BITS) & FIELD_MASK;
+    }
+
+    /**
+     * A getter method returns the day of the month of the date
+     *
+     * @return the day of the month
+     */
+    public int getDay() {
+        return packed & FIELD_MASK;
     }
 
     /**
@@ -66,7 +204,7 @@ public class Date implements Comparable<Date> {
      * @param year the year to check
      * @return true if the given year is a leap year; false otherwise
      */
-    private boolean isLeap(int year) {
+    private static boolean isLeap(int year) {
         return (year % QUADRENNIAL == 0 && (year % CENTENNIAL != 0
                 || year % QUATERCENTENNIAL == 0));
     }
@@ -77,23 +215,30 @@ public class Date implements Comparable<Date> {
      * @return true if the date is valid; false otherwise
      */
     public boolean isValid() {
-        if (this.year < MIN_YEARS || this.month > NUMBER_MONTHS || this.month < MIN_MONTHS ||
-                this.day > BIG_MONTH_DAYS || this.day < MIN_DAYS) {
+        int year = getYear();
+        int month = getMonth();
+        int day = getDay();
+        if (year < MIN_YEARS || month > NUMBER_MONTHS || month < MIN_MONTHS || day < MIN_DAYS) {
             return false;
         }
-        if (this.month == APR || this.month == JUN || this.month == SEP || this.month == NOV) {
-            if (this.day > SMALL_MONTH_DAYS) {
-                return false;
-            }
-        } else if (this.month == FEB) {
-            if (!isLeap(this.year) && this.day > REG_FEB_DAYS) {
-                return false;
-            }
-            if (isLeap(this.year) && this.day > LEAP_FEB_DAYS) {
-                return false;
-            }
+        return day <= daysInMonth(month, year);
+    }
+
+    /**
+     * Helper method to return the number of days in a month
+     *
+     * @param month the month, 1 to 12
+     * @param year  the year
+     * @return the number of days in that month of that year
+     */
+    private static int daysInMonth(int month, int year) {
+        if (month == APR || month == JUN || month == SEP || month == NOV) {
+            return SMALL_MONTH_DAYS;
         }
-        return true;
+        if (month == FEB) {
+            return isLeap(year) ? LEAP_FEB_DAYS : REG_FEB_DAYS;
+        }
+        return BIG_MONTH_DAYS;
     }
 
     /**
@@ -102,15 +247,7 @@ public class Date implements Comparable<Date> {
      * @return true if the date is today or in the future; false otherwise
      */
     public boolean isTodayOrFutureDate() {
-        Calendar calendarInstance = Calendar.getInstance();
-        int currentYear = calendarInstance.get(Calendar.YEAR);
-        int currentMonth = calendarInstance.get(Calendar.MONTH) + 1;
-        int currentDay = calendarInstance.get(Calendar.DAY_OF_MONTH);
-
-        return (this.year > currentYear) || (this.year == currentYear && this.month > currentMonth) ||
-                (this.year == currentYear && this.month == currentMonth && this.day > currentDay) ||
-                ((this.year == currentYear && this.month == currentMonth && this.day == currentDay));
-
+        return this.packed >= new Date().packed;
     }
 
     /**
@@ -124,34 +261,98 @@ public class Date implements Comparable<Date> {
         int currentYear = calendarInstance.get(Calendar.YEAR);
         int currentMonth = calendarInstance.get(Calendar.MONTH) + 1;
 
-        if ((currentYear - dob.year) < VALID_AGE) {
+        if ((currentYear - dob.getYear()) < VALID_AGE) {
             return true;
-        } else if ((currentYear - dob.year) == VALID_AGE) {
-            return dob.month > currentMonth;
+        } else if ((currentYear - dob.getYear()) == VALID_AGE) {
+            return dob.getMonth() > currentMonth;
         }
         return false;
     }
 
     /**
-     * Adds a certain number of months to a date
+     * Adds a certain number of months to a date, carrying into the year.
+     * The day is moved back to the last day of the month when the month is shorter,
+     * so 1/31 plus one month is the last day of February
      *
      * @param months the number of months to add
-     * @return a new Date with the adjusted month
+     * @return a new Date with the adjusted month; this date is unchanged
      */
     public Date plusMonths(int months) {
-        month += months;
-        return new Date(month + "/" + day + "/" + year);
+        int monthIndex = getYear() * NUMBER_MONTHS + getMonth() - MIN_MONTHS + months;
+        int year = Math.floorDiv(monthIndex, NUMBER_MONTHS);
+        int month = Math.floorMod(monthIndex, NUMBER_MONTHS) + MIN_MONTHS;
+        return new Date(month, Math.min(getDay(), daysInMonth(month, year)), year);
     }
 
     /**
-     * Adds a certain number of years to a date
+     * Adds a certain number of years to a date.
+     * February 29 becomes February 28 when the new year is not a leap year
      *
      * @param years the number of years to add
-     * @return a new Date with the adjusted year
+     * @return a new Date with the adjusted year; this date is unchanged
      */
     public Date plusYears(int years) {
-        year += years;
-        return new Date(month + "/" + day + "/" + year);
+        return plusMonths(years * NUMBER_MONTHS);
+    }
+
+    /**
+     * Converts the date to the number of days since 1/1/1970.
+     * Days past the end of the month roll over into the next month
+     *
+     * @return the epoch day of the date
+     */
+    public int toEpochDay() {
+        int month = getMonth();
+        int y = month <= FEB ? getYear() - 1 : getYear();
+        int era = Math.floorDiv(y, YEARS_PER_ERA);
+        int yearOfEra = y - era * YEARS_PER_ERA;
+        int shiftedMonth = month > FEB ? month - 3 : month + 9;
+        int dayOfYear = (153 * shiftedMonth + 2) / 5 + getDay() - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / QUADRENNIAL - yearOfEra / CENTENNIAL + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_FROM_0000_03_01_TO_EPOCH;
+    }
+
+    /**
+     * Creates the date that is a given number of days after 1/1/1970
+     *
+     * @param epochDay the number of days since 1/1/1970
+     * @return the date for that day
+     */
+    public static Date ofEpochDay(int epochDay) {
+        return new Date(packEpochDay(epochDay));
+    }
+
+    /**
+     * Appends the textual representation of the date a given number of days after 1/1/1970
+     * to a builder, without creating a Date
+     *
+     * @param out      the builder to append to
+     * @param epochDay the number of days since 1/1/1970
+     * @return the builder
+     */
+    public static StringBuilder appendEpochDay(StringBuilder out, int epochDay) {
+        int packed = packEpochDay(epochDay);
+        return out.append((packed >> DAY_BITS) & FIELD_MASK).append('/').append(packed & FIELD_MASK)
+                .append('/').append(packed >> (MONTH_BITS + DAY_BITS));
+    }
+
+    /**
+     * Helper method to convert a number of days since 1/1/1970 into a packed date
+     *
+     * @param epochDay the number of days since 1/1/1970
+     * @return the packed date for that day
+     */
+    private static int packEpochDay(int epochDay) {
+        int days = epochDay + DAYS_FROM_0000_03_01_TO_EPOCH;
+        int era = Math.floorDiv(days, DAYS_PER_ERA);
+        int dayOfEra = days - era * DAYS_PER_ERA;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / (DAYS_PER_ERA - 1)) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / QUADRENNIAL - yearOfEra / CENTENNIAL);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * YEARS_PER_ERA + (month <= FEB ? 1 : 0);
+        return pack(month, day, year);
     }
 
     /**
@@ -163,24 +364,7 @@ public class Date implements Comparable<Date> {
      */
     @Override
     public int compareTo(Date o) {
-        if (this.year != o.year && this.year - o.year > 0) {
-            return 1;
-        } else if (this.year != o.year && this.year - o.year < 0) {
-            return -1;
-        }
-
-        if (this.month != o.month && this.month - o.month > 0) {
-            return 1;
-        } else if (this.month != o.month && this.month - o.month < 0) {
-            return -1;
-        }
-
-        if (this.day != o.day && this.day - o.day > 0) {
-            return 1;
-        } else if (this.day != o.day && this.day - o.day < 0) {
-            return -1;
-        }
-        return 0;
+        return Integer.compare(this.packed, o.packed);
     }
 
     /**
@@ -192,12 +376,21 @@ public class Date implements Comparable<Date> {
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof Date) {
-            Date date = (Date) obj;
-            return (this.day == date.day && this.month == date.month && this.year == date.year);
+            return this.packed == ((Date) obj).packed;
         }
         return false;
     }
 
+    /**
+     * Returns a hash code consistent with equals
+     *
+     * @return the hash code of the date
+     */
+    @Override
+    public int hashCode() {
+        return this.packed;
+    }
+
     /**
      * Return a textual representation of a Date object
      *
@@ -205,7 +398,17 @@ public class Date implements Comparable<Date> {
      */
     @Override
     public String toString() {
-        return this.month + "/" + this.day + "/" + this.year;
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends the textual representation of the date to a builder
+     *
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder out) {
+        return out.append(getMonth()).append('/').append(getDay()).append('/').append(getYear());
     }
 }
 
@@ -0,0 +1,182 @@
+package fitnessclub;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An index of the members of a list ordered by the day their membership expires, for
+ * renewal outreach. Members are grouped by their expiration date as an epoch day in a
+ * sorted map, so the expired members, the members expiring in the next few days and the
+ * renewals due in a month are found with a range lookup instead of a scan of the whole
+ * list, in time proportional to the number of members returned.
+ * Once attached, the index follows the members added to and removed from the list.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class ExpirationIndex implements MutationListener {
+    private final TreeMap<Integer, LinkedHashSet<Member>> byExpire; //epoch day -> members
+    private int size;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates an empty index
+     */
+    public ExpirationIndex() {
+        byExpire = new TreeMap<>();
+        size = 0;
+    }
+
+    /**
+     * Creates an index over the members of a list and keeps it up to date as members
+     * are added and removed
+     *
+     * @param list the list to index
+     * @return the index
+     */
+    public static ExpirationIndex attach(MemberList list) {
+        ExpirationIndex index = new ExpirationIndex();
+        for (int i = 0; i < list.getSize(); i++) {
+            index.add(list.getMembers()[i]);
+        }
+        list.addListener(index);
+        return index;
+    }
+
+    /**
+     * A getter method returns the number of members in the index
+     *
+     * @return the number of members
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Adds a member to the index
+     *
+     * @param member the member to add
+     */
+    public void add(Member member) {
+        LinkedHashSet<Member> members = byExpire.get(member.getExpire().toEpochDay());
+        if (members == null) {
+            members = new LinkedHashSet<>();
+            byExpire.put(member.getExpire().toEpochDay(), members);
+        }
+        if (members.add(member)) {
+            size++;
+        }
+    }
+
+    /**
+     * Removes a member from the index
+     *
+     * @param member the member to remove
+     */
+    public void remove(Member member) {
+        int day = member.getExpire().toEpochDay();
+        LinkedHashSet<Member> members = byExpire.get(day);
+        if (members == null || !members.remove(member)) {
+            return;
+        }
+        size--;
+        if (members.isEmpty()) {
+            byExpire.remove(day);
+        }
+    }
+
+    /**
+     * Adds a member added to the attached list
+     *
+     * @param list   the list the member was added to
+     * @param member the member added
+     */
+    @Override
+    public void memberAdded(MemberList list, Member member) {
+        add(member);
+    }
+
+    /**
+     * Removes a member removed from the attached list
+     *
+     * @param list   the list the member was removed from
+     * @param member the member removed
+     */
+    @Override
+    public void memberRemoved(MemberList list, Member member) {
+        remove(member);
+    }
+
+    /**
+     * Finds the members whose membership had expired by a given date,
+     * the same members for which Member.isExpired(today) is true
+     *
+     * @param today the date to check against
+     * @return the expired members, earliest expiration first
+     */
+    public List<Member> expiredAsOf(Date today) {
+        return collect(byExpire.headMap(today.toEpochDay(), false));
+    }
+
+    /**
+     * Finds the members whose membership is still active on a given date
+     * but expires within a number of days of it
+     *
+     * @param today the date to count from
+     * @param days  the number of days ahead to look, counting today as 0
+     * @return the members expiring from today to today plus days, earliest expiration first
+     */
+    public List<Member> expiringWithin(Date today, int days) {
+        int from = today.toEpochDay();
+        return collect(byExpire.subMap(from, true, from + days, true));
+    }
+
+    /**
+     * Finds the members whose membership expires in a given month, whose renewals are due then
+     *
+     * @param month the month, from 1 to 12
+     * @param year  the year
+     * @return the members expiring in that month, earliest expiration first
+     */
+    public List<Member> expiringInMonth(int month, int year) {
+        int from = new Date(month, Date.MIN_DAYS, year).toEpochDay();
+        int to;
+        if (month == Date.NUMBER_MONTHS) {
+            to = new Date(Date.MIN_MONTHS, Date.MIN_DAYS, year + 1).toEpochDay();
+        } else {
+            to = new Date(month + 1, Date.MIN_DAYS, year).toEpochDay();
+        }
+        return collect(byExpire.subMap(from, true, to, false));
+    }
+
+    /**
+     * Counts the members whose membership had expired by a given date,
+     * walking only the days with expired members
+     *
+     * @param today the date to check against
+     * @return the number of expired members
+     */
+    public int countExpiredAsOf(Date today) {
+        int count = 0;
+        for (LinkedHashSet<Member> members : byExpire.headMap(today.toEpochDay(), false).values()) {
+            count += members.size();
+        }
+        return count;
+    }
+
+    /**
+     * Helper method to copy the members of a range of days into a list
+     *
+     * @param range the days to copy, in order
+     * @return the members of those days, in order of expiration
+     */
+    private static List<Member> collect(NavigableMap<Integer, LinkedHashSet<Member>> range) {
+        ArrayList<Member> members = new ArrayList<>();
+        for (LinkedHashSet<Member> day : range.values()) {
+            members.addAll(day);
+        }
+        return members;
+    }
+}
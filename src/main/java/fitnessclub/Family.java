@@ -1,5 +1,7 @@
 package fitnessclub;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * This class represents a family membership type in the fitness club.
  * This is a subclass of Member and includes specific functionality,
@@ -11,7 +13,7 @@ public class Family extends Member {
     private static final double MONTH_FEE = 49.99;
     private static final int BILL_MONTHS = 3;
 
-    private boolean guest;
+    private final AtomicBoolean guest;
 
     /**
      * Parameterized constructor requires 4 parameters to create a Family member object
@@ -23,7 +25,7 @@ public class Family extends Member {
      */
     public Family(Profile profile, Date expire, Location homeStudio, boolean guest) {
         super(profile, expire, homeStudio);
-        this.guest = guest;
+        this.guest = new AtomicBoolean(guest);
     }
 
     /**
@@ -32,16 +34,59 @@ public class Family extends Member {
      * @return true if a guest pass is available; false otherwise
      */
     public boolean isGuest() {
-        return guest;
+        return guest.get();
     }
 
     /**
      * Setter method to set the availability of a guest pass for this family membership.
      *
      * @param guest true to indicate a guest pass is available, false otherwise
+     * @throws RuntimeException when a listener refuses the change; the pass is set back
      */
     public void setGuest(boolean guest) {
-        this.guest = guest;
+        boolean was = this.guest.getAndSet(guest);
+        notifySet(guest, was);
+    }
+
+    /**
+     * Helper method to tell the listener about the guest pass being set,
+     * setting it back if the listener refuses the change
+     *
+     * @param guest the new value of the guest pass
+     * @param was   the value of the guest pass before the change
+     */
+    private void notifySet(boolean guest, boolean was) {
+        if (getListener() != null) {
+            try {
+                getListener().guestSet(this, guest);
+            } catch (RuntimeException e) {
+                this.guest.set(was);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Takes the guest pass with a compare-and-set, failing if it is already used
+     *
+     * @return true if the pass was available and is now used; false otherwise
+     * @throws RuntimeException when a listener refuses the change; the pass is given back
+     */
+    @Override
+    public boolean tryUseGuestPass() {
+        if (!guest.compareAndSet(true, false)) {
+            return false;
+        }
+        notifySet(false, true);
+        return true;
+    }
+
+    /**
+     * Gives back the guest pass taken with tryUseGuestPass
+     */
+    @Override
+    public void returnGuestPass() {
+        setGuest(true);
     }
 
     /**
@@ -51,17 +96,28 @@ public class Family extends Member {
      */
     @Override
     public double bill() {
+        return billFor();
+    }
+
+    /**
+     * Calculates the fee for any Family membership
+     *
+     * @return the total bill amount
+     */
+    static double billFor() {
         return MONTH_FEE * BILL_MONTHS;
     }
 
     /**
-     * Returns a string representation of a Family member object.
+     * Appends the string representation of a Family member object.
      * Shows dynamic binding (polymorphism)
      *
-     * @return a string representation of the Family member
+     * @param out   the builder to append to
+     * @param today the date to check the expiration against
+     * @return the builder
      */
     @Override
-    public String toString() {
+    public StringBuilder appendTo(StringBuilder out, Date today) {
 
         String guestNumber = "0";
 
@@ -69,9 +125,9 @@ public class Family extends Member {
             guestNumber = "1";
         }
 
-        if (isExpired()) {
+        if (isExpired(today)) {
             guestNumber = "not eligible";
         }
-        return super.toString() + ", (Family) guest-pass remaining: " + guestNumber;
+        return super.appendTo(out, today).append(", (Family) guest-pass remaining: ").append(guestNumber);
     }
 }
@@ -1,9 +1,17 @@
 package fitnessclub;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * An instance of this class holds the information of a fitness class and the attendees for
  * members and guests.
- * It manages the enrollment of members and guests into the class.
+ * It manages the enrollment of members and guests into the class. Attendees are kept as
+ * bitmaps of member ids, so enrollment checks and comparisons between classes are cheap;
+ * the member lists of the class are only allocated once someone enrolls. Member ids belong to
+ * profiles, so a member is found whichever Member object with its profile is passed in.
+ * The ids come from the registry of the schedule holding the class, so the bitmaps of the
+ * classes of one schedule can be compared, and an id is freed once no class roster holds it.
  *
  * @author Ved Patel, Vivek Manthri
  */
@@ -12,8 +20,13 @@ public class FitnessClass {
     private Instructor instructor;
     private Location studio;
     private Time time;
-    private MemberList members;
-    private MemberList guests;
+    private MemberList members; //created when the first member enrolls
+    private MemberList guests; //created when the first guest is added
+    private MemberBitmap memberIds;
+    private MemberBitmap guestIds;
+    private volatile MemberIds ids; //the registry of the schedule; null until the class needs one
+    private MutationDispatcher dispatcher; //created when the first listener is added
+    private volatile FitnessClass replacement; //the class this one moved to in a reload; null if it did not
 
     /**
      * Parameterized constructor requires 4 parameters to create a FitnessClass object
@@ -28,8 +41,8 @@ public class FitnessClass {
         this.instructor = instructor;
         this.studio = studio;
         this.time = time;
-        members = new MemberList();
-        guests = new MemberList();
+        memberIds = new MemberBitmap();
+        guestIds = new MemberBitmap();
     }
 
     /**
@@ -74,6 +87,9 @@ public class FitnessClass {
      * @return the list of members in the class
      */
     public MemberList getMembers() {
+        if (members == null) {
+            members = new MemberList();
+        }
         return members;
     }
 
@@ -83,16 +99,226 @@ public class FitnessClass {
      * @return the list of guests in the class
      */
     public MemberList getGuests() {
+        if (guests == null) {
+            guests = new MemberList();
+        }
         return guests;
     }
 
+    /**
+     * A getter method returns the number of members in the fitness class,
+     * without creating the list of members
+     *
+     * @return the number of members enrolled in the class
+     */
+    public int getNumMembers() {
+        return members == null ? 0 : members.getSize();
+    }
+
+    /**
+     * A getter method returns the number of guests in the fitness class,
+     * without creating the list of guests
+     *
+     * @return the number of guests in the class
+     */
+    public int getNumGuests() {
+        return guests == null ? 0 : guests.getSize();
+    }
+
+    /**
+     * A getter method returns the ids of the members in the fitness class
+     *
+     * @return the bitmap of member ids; changes as members enroll and drop, and is replaced
+     * when the class is added to a schedule with other ids
+     */
+    public MemberBitmap getMemberIds() {
+        return memberIds;
+    }
+
+    /**
+     * A getter method returns the ids of the members who brought a guest to the fitness class
+     *
+     * @return the bitmap of member ids; changes as guests are added and removed, and is replaced
+     * when the class is added to a schedule with other ids
+     */
+    public MemberBitmap getGuestIds() {
+        return guestIds;
+    }
+
+    /**
+     * Checks if a member is enrolled in the fitness class
+     *
+     * @param member the member to check
+     * @return true if the member is enrolled; false otherwise
+     */
+    public boolean isEnrolled(Member member) {
+        MemberIds registry = ids;
+        int id = registry == null ? -1 : registry.find(member.getProfile());
+        return id >= 0 && memberIds.contains(id);
+    }
+
+    /**
+     * Checks if a member has a guest in the fitness class
+     *
+     * @param member the member to check
+     * @return true if the member's guest is in the class; false otherwise
+     */
+    public boolean hasGuest(Member member) {
+        MemberIds registry = ids;
+        int id = registry == null ? -1 : registry.find(member.getProfile());
+        return id >= 0 && guestIds.contains(id);
+    }
+
+    /**
+     * Finds the members enrolled both in this class and in another one
+     *
+     * @param other the other fitness class
+     * @return the members of this class who are also in the other class, in order of enrollment
+     */
+    public List<Member> membersAlsoIn(FitnessClass other) {
+        ArrayList<Member> both = new ArrayList<>();
+        if (members == null || (ids == other.ids && MemberBitmap.andCardinality(memberIds, other.memberIds) == 0)) {
+            return both;
+        }
+        Member[] enrolled = members.getMembers();
+        for (int i = 0; i < members.getSize(); i++) {
+            if (other.isEnrolled(enrolled[i])) {
+                both.add(enrolled[i]);
+            }
+        }
+        return both;
+    }
+
+    /**
+     * A getter method returns the class that took over from this one when a reload moved it
+     * to a new time
+     *
+     * @return the class at its new time; null if the class was not moved
+     */
+    public FitnessClass getReplacement() {
+        return replacement;
+    }
+
+    /**
+     * A setter method records the class that took over from this one, with its members and guests
+     *
+     * @param replacement the class at its new time
+     */
+    void setReplacement(FitnessClass replacement) {
+        this.replacement = replacement;
+    }
+
+    /**
+     * Moves the class to the id registry of a schedule it is added to. A class that already
+     * has members or guests under other ids has its bitmaps rebuilt with the new ids, and gives
+     * back its references to the old ones.
+     * Must not run while the class is being changed on another thread
+     *
+     * @param registry the id registry of the schedule
+     */
+    void useIds(MemberIds registry) {
+        MemberIds old = ids;
+        if (old == registry) {
+            return;
+        }
+        memberIds = moveIds(members, old, registry);
+        guestIds = moveIds(guests, old, registry);
+        ids = registry;
+    }
+
+    /**
+     * Helper method to take ids from a new registry for the members of a roster,
+     * giving back their ids in the old one
+     *
+     * @param roster   the members or guests of the class; may be null
+     * @param old      the registry the ids were taken from; may be null
+     * @param registry the registry to take the ids from
+     * @return a bitmap of the new ids
+     */
+    private static MemberBitmap moveIds(MemberList roster, MemberIds old, MemberIds registry) {
+        MemberBitmap bitmap = new MemberBitmap();
+        for (int i = 0; roster != null && i < roster.getSize(); i++) {
+            Profile profile = roster.getMembers()[i].getProfile();
+            bitmap.add(registry.acquire(profile));
+            if (old != null) {
+                old.release(profile);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Helper method to return the id registry of the class, creating one of its own
+     * if it is not in a schedule yet
+     *
+     * @return the id registry
+     */
+    private MemberIds ids() {
+        if (ids == null) {
+            ids = new MemberIds();
+        }
+        return ids;
+    }
+
+    /**
+     * Registers a listener to be told about members and guests added to and removed from the class.
+     *
+     * @param listener The listener to register.
+     */
+    public void addListener(MutationListener listener) {
+        if (dispatcher == null) {
+            dispatcher = new MutationDispatcher();
+        }
+        dispatcher.add(listener);
+    }
+
+    /**
+     * Registers a listener to be told about changes before every other listener,
+     * so it can refuse a change by throwing before anyone else has seen it.
+     *
+     * @param listener The listener to register.
+     */
+    void addFirstListener(MutationListener listener) {
+        if (dispatcher == null) {
+            dispatcher = new MutationDispatcher();
+        }
+        dispatcher.addFirst(listener);
+    }
+
+    /**
+     * Unregisters a listener added with addListener.
+     *
+     * @param listener The listener to unregister.
+     */
+    public void removeListener(MutationListener listener) {
+        if (dispatcher != null) {
+            dispatcher.remove(listener);
+        }
+    }
+
     /**
      * Adds a member to the fitness class.
      *
      * @param member The member to add
+     * @throws RuntimeException when a listener refuses the change; the member is not added
      */
     public void addMember(Member member) {
-        this.members.add(member);
+        if (!getMembers().add(member)) {
+            return;
+        }
+        MemberIds registry = ids();
+        int id = registry.acquire(member.getProfile());
+        memberIds.add(id);
+        if (dispatcher != null) {
+            try {
+                dispatcher.classMemberAdded(this, member);
+            } catch (RuntimeException e) {
+                members.remove(member);
+                memberIds.remove(id);
+                registry.release(member.getProfile());
+                throw e;
+            }
+        }
     }
 
     /**
@@ -100,27 +326,80 @@ public class FitnessClass {
      *
      * @param member The member to remove.
      * @return true if removal is successful; false otherwise
+     * @throws RuntimeException when a listener refuses the change; the member stays enrolled
      */
     public boolean removeMember(Member member) {
-        return this.members.remove(member);
+        if (!isEnrolled(member)) {
+            return false;
+        }
+        int index = this.members.indexOf(member);
+        Member enrolled = this.members.getMembers()[index];
+        MemberIds registry = ids;
+        this.members.remove(enrolled);
+        memberIds.remove(registry.find(enrolled.getProfile()));
+        registry.release(enrolled.getProfile());
+        if (dispatcher != null) {
+            try {
+                dispatcher.classMemberRemoved(this, enrolled);
+            } catch (RuntimeException e) {
+                this.members.insert(index, enrolled);
+                memberIds.add(registry.acquire(enrolled.getProfile()));
+                throw e;
+            }
+        }
+        return true;
     }
 
     /**
      * Adds a guest to the fitness class.
      *
      * @param guest The guest to add.
+     * @throws RuntimeException when a listener refuses the change; the guest is not added
      */
     public void addGuest(Member guest) {
-        this.guests.add(guest);
+        if (!getGuests().add(guest)) {
+            return;
+        }
+        MemberIds registry = ids();
+        int id = registry.acquire(guest.getProfile());
+        guestIds.add(id);
+        if (dispatcher != null) {
+            try {
+                dispatcher.classGuestAdded(this, guest);
+            } catch (RuntimeException e) {
+                guests.remove(guest);
+                guestIds.remove(id);
+                registry.release(guest.getProfile());
+                throw e;
+            }
+        }
     }
 
     /**
      * Removes a guest from the fitness class.
      *
      * @param guest The guest to remove.
+     * @throws RuntimeException when a listener refuses the change; the guest stays in the class
      */
     public void removeGuest(Member guest) {
-        this.guests.remove(guest);
+        if (!hasGuest(guest)) {
+            return;
+        }
+        int index = this.guests.indexOf(guest);
+        Member added = this.guests.getMembers()[index];
+        MemberIds registry = ids;
+        this.guests.remove(added);
+        guestIds.remove(registry.find(added.getProfile()));
+        registry.release(added.getProfile());
+        if (dispatcher != null) {
+            try {
+                dispatcher.classGuestRemoved(this, added);
+            } catch (RuntimeException e) {
+                this.guests.insert(index, added);
+                guestIds.add(registry.acquire(added.getProfile()));
+                throw e;
+            }
+        }
     }
 
     /**
@@ -141,6 +420,19 @@ public class FitnessClass {
         return false;
     }
 
+    /**
+     * Returns a hash code consistent with equals, based on the class details
+     *
+     * @return the hash code of the fitness class
+     */
+    @Override
+    public int hashCode() {
+        int hash = classInfo.hashCode();
+        hash = 31 * hash + instructor.hashCode();
+        hash = 31 * hash + studio.hashCode();
+        return 31 * hash + time.hashCode();
+    }
+
     /**
      * Returns a string representation of the fitness class.
      *
@@ -0,0 +1,606 @@
+package fitnessclub;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * An append-only journal of the changes made to the member list and the class enrollments,
+ * so they survive a crash. Each change is written as one line of text, and the call making
+ * the change returns only once its line is on disk. Lines from concurrent callers are
+ * collected while the previous batch is being synced and written with a single fsync
+ * (group commit), so the cost of a sync is shared by every change waiting on it.
+ * The journal is told about a change before any other listener. If its line cannot be
+ * written, the change is undone and the call making it throws an UncheckedIOException, so
+ * memory never holds a change the journal does not. The part of the failed batch that
+ * reached the file is cut off again and later changes are journaled as usual; only if the
+ * file cannot be cut back does the journal refuse every later change.
+ * Every line starts with a sequence number one higher than the line before it, which keeps
+ * growing across truncate. A snapshot records the sequence number of the last change it
+ * holds, and replay skips the lines up to it, so a crash between saving a snapshot and
+ * truncating the journal does not apply those changes twice.
+ * On startup, replay applies the journal to the member list and schedule restored from
+ * the last snapshot.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class Journal implements MutationListener, AutoCloseable {
+    private static final String MEMBER_ADDED = "MA";
+    private static final String MEMBER_REMOVED = "MR";
+    private static final String CLASS_MEMBER_ADDED = "CA";
+    private static final String CLASS_MEMBER_REMOVED = "CR";
+    private static final String CLASS_GUEST_ADDED = "GA";
+    private static final String CLASS_GUEST_REMOVED = "GR";
+    private static final String GUEST_PASS_USED = "PU";
+    private static final String GUEST_PASS_ADDED = "PA";
+    private static final String GUEST_SET = "FG";
+    private static final String CLASS_ATTENDED = "BC";
+    private static final String TYPE_CODES = "BFP"; //indexed by MemberStore.BASIC, FAMILY and PREMIUM
+    private static final int INITIAL_BATCH_CHARS = 4096;
+
+    private final FileChannel channel;
+    private final Thread flusher;
+    private Batch pending; //lines waiting for the next sync
+    private Batch writing; //lines being written and synced; null while the flusher is idle
+    private long synced; //length of the file up to the end of the last synced batch
+    private long lastSeq; //sequence number of the last line handed to the journal
+    private boolean closed;
+    private IOException broken; //set when a failed batch could not be cut off the file
+
+    /**
+     * The lines written with one sync, and the outcome every caller in it waits for
+     */
+    private static final class Batch {
+        private final StringBuilder lines = new StringBuilder(INITIAL_BATCH_CHARS);
+        private boolean done;
+        private IOException failure;
+    }
+
+    /**
+     * Parameterized constructor requires 2 parameters to open a journal for appending,
+     * creating the file if it does not exist
+     *
+     * @param file    the journal file
+     * @param lastSeq the sequence number of the last change already made, as returned by replay;
+     *                the first new line is numbered one higher
+     * @throws IOException when the file cannot be opened for writing
+     */
+    public Journal(File file, long lastSeq) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        pending = new Batch();
+        writing = null;
+        synced = channel.size();
+        this.lastSeq = lastSeq;
+        closed = false;
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Starts journaling the changes made to a member list and to the classes of a schedule,
+     * ahead of the listeners already registered with them.
+     * Classes added to the schedule afterwards must be attached with attach(FitnessClass)
+     *
+     * @param members  the member list to journal
+     * @param schedule the schedule whose class enrollments to journal
+     */
+    public void attach(MemberList members, Schedule schedule) {
+        members.addFirstListener(this);
+        for (int i = 0; i < schedule.getNumClasses(); i++) {
+            attach(schedule.getClasses()[i]);
+        }
+    }
+
+    /**
+     * Starts journaling the enrollments of a fitness class, ahead of the listeners
+     * already registered with it
+     *
+     * @param fitnessClass the class to journal
+     */
+    public void attach(FitnessClass fitnessClass) {
+        fitnessClass.addFirstListener(this);
+    }
+
+    /**
+     * A getter method returns the sequence number of the last change journaled, to save with
+     * a snapshot of the state holding that change. Call it while no changes are being made,
+     * so the snapshot holds exactly the changes up to it
+     *
+     * @return the sequence number of the last line handed to the journal
+     */
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Discards every line in the journal, once a snapshot holding their changes has been saved.
+     * Sequence numbers carry on from where they were
+     *
+     * @throws IOException when the file cannot be truncated
+     */
+    public synchronized void truncate() throws IOException {
+        boolean interrupted = false;
+        while (pending.lines.length() > 0 || writing != null) {
+            interrupted |= awaitFlush();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        channel.truncate(0);
+        channel.force(true);
+        synced = 0;
+    }
+
+    /**
+     * Waits for every journaled change to reach the disk, then closes the file
+     *
+     * @throws IOException when the journal was refusing changes because a failed batch could
+     *                     not be cut off the file, or the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (broken != null) {
+            throw broken;
+        }
+    }
+
+    /**
+     * Applies the lines of a journal that come after a snapshot to the member list and schedule
+     * restored from it, in order. Lines numbered up to the snapshot's sequence number are
+     * already in the snapshot and are skipped.
+     * Only the last line may be cut short by a crash: a final line without its newline is
+     * skipped. Any other line that is malformed, or that refers to a member or class that does
+     * not exist, means the journal does not match the snapshot it is applied to, so replay
+     * stops there rather than apply the lines after it to the wrong state
+     *
+     * @param file     the journal file; nothing is applied if it does not exist
+     * @param members  the member list to apply the changes to
+     * @param schedule the schedule holding the classes to apply the enrollment changes to
+     * @param afterSeq the sequence number saved with the snapshot; 0 if there is no snapshot
+     * @return the sequence number of the last change now in the state, to open the Journal with:
+     * the number of the last complete line, or afterSeq if that is higher
+     * @throws IOException when the file cannot be read, or a complete line cannot be applied;
+     *                     the message names the line number
+     */
+    public static long replay(File file, MemberList members, Schedule schedule, long afterSeq) throws IOException {
+        if (!file.exists()) {
+            return afterSeq;
+        }
+        String text = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+        List<String> lines = text.lines().toList();
+        int numComplete = text.endsWith("\n") ? lines.size() : lines.size() - 1;
+        long lastSeq = afterSeq;
+        for (int i = 0; i < numComplete; i++) {
+            String line = lines.get(i);
+            boolean applied;
+            try {
+                int space = line.indexOf(' ');
+                long seq = Long.parseLong(line.substring(0, space));
+                if (seq <= afterSeq) {
+                    continue;
+                }
+                applied = apply(line.substring(space + 1).split(" "), members, schedule);
+                lastSeq = seq;
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed journal line " + (i + 1) + ": " + line, e);
+            }
+            if (!applied) {
+                throw new IOException("Journal line " + (i + 1) + " does not match the snapshot: " + line);
+            }
+        }
+        return lastSeq;
+    }
+
+    /**
+     * Helper method to apply one journal line
+     *
+     * @param fields   the space separated fields of the line
+     * @param members  the member list to apply the change to
+     * @param schedule the schedule holding the class to apply the change to
+     * @return true if the change was applied; false if its member or class was not found
+     */
+    private static boolean apply(String[] fields, MemberList members, Schedule schedule) {
+        String code = fields[0];
+        if (code.equals(MEMBER_ADDED)) {
+            return members.add(parseMember(fields, 1));
+        }
+        if (code.equals(CLASS_MEMBER_ADDED) || code.equals(CLASS_MEMBER_REMOVED)
+                || code.equals(CLASS_GUEST_ADDED) || code.equals(CLASS_GUEST_REMOVED)) {
+            FitnessClass fitnessClass = schedule.findClass(Offer.valueOf(fields[1]),
+                    Instructor.valueOf(fields[2]), Location.valueOf(fields[3]), Time.valueOf(fields[4]));
+            boolean added = code.equals(CLASS_MEMBER_ADDED) || code.equals(CLASS_GUEST_ADDED);
+            Member member = findMember(parseProfile(fields, added ? 6 : 5), members, schedule);
+            if (member == null && added) {
+                member = parseMember(fields, 5);
+            }
+            if (fitnessClass == null || member == null) {
+                return false;
+            }
+            switch (code) {
+                case CLASS_MEMBER_ADDED -> fitnessClass.addMember(member);
+                case CLASS_MEMBER_REMOVED -> fitnessClass.removeMember(member);
+                case CLASS_GUEST_ADDED -> fitnessClass.addGuest(member);
+                case CLASS_GUEST_REMOVED -> fitnessClass.removeGuest(member);
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Member member = members.getMemberFromProfile(parseProfile(fields, 1));
+        if (member == null) {
+            return false;
+        }
+        switch (code) {
+            case MEMBER_REMOVED -> members.remove(member);
+            case GUEST_PASS_USED -> ((Premium) member).useGuestPass();
+            case GUEST_PASS_ADDED -> ((Premium) member).addGuestPass();
+            case GUEST_SET -> ((Family) member).setGuest(Boolean.parseBoolean(fields[4]));
+            case CLASS_ATTENDED -> ((Basic) member).addClass();
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to find the member with a profile, in the member list or else in the
+     * class rosters, since a snapshot keeps members enrolled only in a class outside the list.
+     * A member in neither is built from the record on its class added line
+     *
+     * @param profile  the profile to find
+     * @param members  the member list
+     * @param schedule the schedule holding the class rosters
+     * @return the member with the profile; null if it is in neither
+     */
+    private static Member findMember(Profile profile, MemberList members, Schedule schedule) {
+        Member member = members.getMemberFromProfile(profile);
+        if (member != null) {
+            return member;
+        }
+        Member key = new Member(profile, null, null);
+        for (int i = 0; i < schedule.getNumClasses(); i++) {
+            FitnessClass fitnessClass = schedule.getClasses()[i];
+            if (fitnessClass.isEnrolled(key)) {
+                return fitnessClass.getMembers().getMemberFromProfile(profile);
+            }
+            if (fitnessClass.hasGuest(key)) {
+                return fitnessClass.getGuests().getMemberFromProfile(profile);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method to parse the profile fields of a journal line
+     *
+     * @param fields the space separated fields of the line
+     * @param start  the index of the first name field
+     * @return the profile
+     */
+    private static Profile parseProfile(String[] fields, int start) {
+        return new Profile(fields[start], fields[start + 1], new Date(fields[start + 2]));
+    }
+
+    /**
+     * Helper method to parse a member record of a journal line: type, profile, expire, studio, counter
+     *
+     * @param fields the space separated fields of the line
+     * @param start  the index of the type field
+     * @return the Basic, Family, or Premium member
+     * @throws IllegalArgumentException when the type is not B, F or P
+     */
+    private static Member parseMember(String[] fields, int start) {
+        Profile profile = parseProfile(fields, start + 1);
+        Date expire = new Date(fields[start + 4]);
+        Location homeStudio = Location.valueOf(fields[start + 5]);
+        int counter = Integer.parseInt(fields[start + 6]);
+        switch (fields[start]) {
+            case "B":
+                return new Basic(profile, expire, homeStudio, counter);
+            case "F":
+                return new Family(profile, expire, homeStudio, counter != 0);
+            case "P":
+                return new Premium(profile, expire, homeStudio, counter);
+            default:
+                throw new IllegalArgumentException("unknown membership type: " + fields[start]);
+        }
+    }
+
+    /**
+     * Journals a member added to the member list
+     *
+     * @param list   the list the member was added to
+     * @param member the member added
+     * @throws IllegalArgumentException when the member is not a Basic, Family, or Premium member
+     *                                  or a view over a row of a store; the member is not added
+     */
+    @Override
+    public void memberAdded(MemberList list, Member member) {
+        append(appendRecord(new StringBuilder(MEMBER_ADDED), member));
+    }
+
+    /**
+     * Journals a member removed from the member list
+     *
+     * @param list   the list the member was removed from
+     * @param member the member removed
+     */
+    @Override
+    public void memberRemoved(MemberList list, Member member) {
+        append(profileLine(MEMBER_REMOVED, member));
+    }
+
+    /**
+     * Journals a member enrolled in a class, with the whole record of the member,
+     * since a member enrolled only in classes is not in the member list to be found by replay
+     *
+     * @param fitnessClass the class the member was added to
+     * @param member       the member added
+     * @throws IllegalArgumentException when the member is not a Basic, Family, or Premium member
+     *                                  or a view over a row of a store; the member is not added
+     */
+    @Override
+    public void classMemberAdded(FitnessClass fitnessClass, Member member) {
+        append(appendRecord(classLine(CLASS_MEMBER_ADDED, fitnessClass), member));
+    }
+
+    /**
+     * Journals a member dropped from a class
+     *
+     * @param fitnessClass the class the member was removed from
+     * @param member       the member removed
+     */
+    @Override
+    public void classMemberRemoved(FitnessClass fitnessClass, Member member) {
+        append(appendProfile(classLine(CLASS_MEMBER_REMOVED, fitnessClass), member));
+    }
+
+    /**
+     * Journals a guest added to a class, with the whole record of the member bringing the guest
+     *
+     * @param fitnessClass the class the guest was added to
+     * @param guest        the member bringing the guest
+     * @throws IllegalArgumentException when the member is not a Basic, Family, or Premium member
+     *                                  or a view over a row of a store; the guest is not added
+     */
+    @Override
+    public void classGuestAdded(FitnessClass fitnessClass, Member guest) {
+        append(appendRecord(classLine(CLASS_GUEST_ADDED, fitnessClass), guest));
+    }
+
+    /**
+     * Journals a guest removed from a class
+     *
+     * @param fitnessClass the class the guest was removed from
+     * @param guest        the member who brought the guest
+     */
+    @Override
+    public void classGuestRemoved(FitnessClass fitnessClass, Member guest) {
+        append(appendProfile(classLine(CLASS_GUEST_REMOVED, fitnessClass), guest));
+    }
+
+    /**
+     * Journals a guest pass used by a Premium member
+     *
+     * @param member the member whose guest passes went down by one
+     */
+    @Override
+    public void guestPassUsed(Premium member) {
+        append(profileLine(GUEST_PASS_USED, member));
+    }
+
+    /**
+     * Journals a guest pass given back to a Premium member
+     *
+     * @param member the member whose guest passes went up by one
+     */
+    @Override
+    public void guestPassAdded(Premium member) {
+        append(profileLine(GUEST_PASS_ADDED, member));
+    }
+
+    /**
+     * Journals the guest pass of a Family member being set
+     *
+     * @param member the member whose guest pass was set
+     * @param guest  true if a guest pass is now available; false otherwise
+     */
+    @Override
+    public void guestSet(Family member, boolean guest) {
+        append(profileLine(GUEST_SET, member).append(' ').append(guest));
+    }
+
+    /**
+     * Journals a class attended by a Basic member
+     *
+     * @param member the member whose classes attended went up by one
+     */
+    @Override
+    public void classAttended(Basic member) {
+        append(profileLine(CLASS_ATTENDED, member));
+    }
+
+    /**
+     * Helper method to append the whole record of a member: type, profile, expiration date,
+     * home studio and counter
+     *
+     * @param line   the line to append to
+     * @param member the member
+     * @return the line
+     * @throws IllegalArgumentException when the member is not a Basic, Family, or Premium member
+     *                                  or a view over a row of a store
+     */
+    private static StringBuilder appendRecord(StringBuilder line, Member member) {
+        line.append(' ').append(TYPE_CODES.charAt(MemberStore.typeOf(member)));
+        return appendProfile(line, member).append(' ').append(member.getExpire())
+                .append(' ').append(member.getHomeStudio().name())
+                .append(' ').append(MemberStore.counterOf(member));
+    }
+
+    /**
+     * Helper method to append the profile of a member
+     *
+     * @param line   the line to append to
+     * @param member the member
+     * @return the line
+     */
+    private static StringBuilder appendProfile(StringBuilder line, Member member) {
+        Profile profile = member.getProfile();
+        return line.append(' ').append(profile.getFname()).append(' ').append(profile.getLname())
+                .append(' ').append(profile.getDob());
+    }
+
+    /**
+     * Helper method to start a line with a code and the profile of a member
+     *
+     * @param code   the code of the change
+     * @param member the member that changed
+     * @return the line
+     */
+    private static StringBuilder profileLine(String code, Member member) {
+        return appendProfile(new StringBuilder(code), member);
+    }
+
+    /**
+     * Helper method to start a line with a code and the key of a class
+     *
+     * @param code         the code of the change
+     * @param fitnessClass the class that changed
+     * @return the line
+     */
+    private static StringBuilder classLine(String code, FitnessClass fitnessClass) {
+        return new StringBuilder(code).append(' ').append(fitnessClass.getClassInfo().name())
+                .append(' ').append(fitnessClass.getInstructor().name())
+                .append(' ').append(fitnessClass.getStudio().name())
+                .append(' ').append(fitnessClass.getTime().name());
+    }
+
+    /**
+     * Helper method to number a line, queue it for the next sync and wait until it is on disk.
+     * The wait is not cut short by an interrupt, which would leave the caller undoing a change
+     * whose line may still be written; the interrupt status is kept for the caller instead
+     *
+     * @param line the line to journal, without the newline
+     * @throws UncheckedIOException when the line could not be written; it is not in the journal
+     * @throws IllegalStateException when the journal is closed
+     */
+    private synchronized void append(CharSequence line) {
+        if (closed) {
+            throw new IllegalStateException("journal is closed");
+        }
+        if (broken != null) {
+            throw new UncheckedIOException("journal is refusing changes after a failed write", broken);
+        }
+        Batch batch = pending;
+        lastSeq++;
+        batch.lines.append(lastSeq).append(' ').append(line).append('\n');
+        notifyAll();
+        boolean interrupted = false;
+        while (!batch.done) {
+            interrupted |= awaitFlush();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (batch.failure != null) {
+            throw new UncheckedIOException(batch.failure);
+        }
+    }
+
+    /**
+     * Helper method to wait for the flusher thread while holding the lock
+     *
+     * @return true if the thread was interrupted while waiting; false otherwise
+     */
+    private boolean awaitFlush() {
+        try {
+            wait();
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Body of the flusher thread: takes every pending line as one batch, writes it,
+     * syncs the file once, and wakes the callers waiting on that batch
+     */
+    private void flushLoop() {
+        while (true) {
+            Batch batch;
+            synchronized (this) {
+                while (pending.lines.length() == 0 && !closed) {
+                    awaitFlush();
+                }
+                if (pending.lines.length() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = new Batch();
+                writing = batch;
+            }
+            IOException failure = write(batch);
+            synchronized (this) {
+                batch.failure = failure;
+                batch.done = true;
+                writing = null;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Helper method to write and sync one batch. If that fails, whatever part of the batch
+     * reached the file is cut off, so the journal still ends with a complete line
+     *
+     * @param batch the batch to write
+     * @return null if the batch is on disk; otherwise the error, and no line of the batch is in the journal
+     */
+    private IOException write(Batch batch) {
+        if (broken != null) {
+            return broken;
+        }
+        try {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(batch.lines));
+            int length = bytes.remaining();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+            synced += length;
+            return null;
+        } catch (IOException e) {
+            try {
+                channel.truncate(synced);
+                channel.force(true);
+            } catch (IOException cutFailed) {
+                e.addSuppressed(cutFailed);
+                synchronized (this) {
+                    broken = e;
+                }
+            }
+            return e;
+        }
+    }
+}
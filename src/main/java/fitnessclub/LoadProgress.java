@@ -0,0 +1,20 @@
+package fitnessclub;
+
+/**
+ * Receives the progress of a member file load, one chunk of about 1 MB at a time.
+ * With a parallel load it is called from several threads, so the counts are the size
+ * of each chunk rather than running totals. Throwing an unchecked exception, such as
+ * a CancellationException, stops the load and is rethrown to the caller.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public interface LoadProgress {
+
+    /**
+     * Called after a chunk of the file is parsed
+     *
+     * @param bytes the number of bytes in the chunk
+     * @param lines the number of lines in the chunk
+     */
+    void chunkParsed(long bytes, long lines);
+}
@@ -0,0 +1,133 @@
+package fitnessclub;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the outcome of loading a member file: the members parsed in file order
+ * and an error for every line that could not be parsed.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class LoadResult {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int GROW_FACTOR = 2;
+
+    private Member[] members;
+    private int numMembers;
+    private int numLines;
+    private ArrayList<Integer> errorLines;
+    private ArrayList<String> errorMessages;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Initializes an empty result
+     */
+    public LoadResult() {
+        members = new Member[INITIAL_CAPACITY];
+        numMembers = 0;
+        numLines = 0;
+        errorLines = new ArrayList<>();
+        errorMessages = new ArrayList<>();
+    }
+
+    /**
+     * A getter method returns the parsed members, in the order they appear in the file
+     *
+     * @return an array holding the parsed members in its first getNumMembers() slots
+     */
+    public Member[] getMembers() {
+        return members;
+    }
+
+    /**
+     * A getter method returns the number of members parsed
+     *
+     * @return the number of members parsed
+     */
+    public int getNumMembers() {
+        return numMembers;
+    }
+
+    /**
+     * A getter method returns the number of lines read, including blank and malformed lines
+     *
+     * @return the number of lines read
+     */
+    public int getNumLines() {
+        return numLines;
+    }
+
+    /**
+     * Returns the errors for the lines that could not be parsed
+     *
+     * @return a list of messages in the format "line N: reason"
+     */
+    public List<String> getErrors() {
+        List<String> errors = new ArrayList<>(errorMessages.size());
+        for (int i = 0; i < errorMessages.size(); i++) {
+            errors.add("line " + errorLines.get(i) + ": " + errorMessages.get(i));
+        }
+        return errors;
+    }
+
+    /**
+     * Determines if any line could not be parsed
+     *
+     * @return true if there is at least one error; false otherwise
+     */
+    public boolean hasErrors() {
+        return !errorMessages.isEmpty();
+    }
+
+    /**
+     * Adds a parsed member to the result
+     *
+     * @param member the member parsed from the file
+     */
+    void addMember(Member member) {
+        if (numMembers == members.length) {
+            members = Arrays.copyOf(members, members.length * GROW_FACTOR);
+        }
+        members[numMembers] = member;
+        numMembers++;
+    }
+
+    /**
+     * Records an error for a line that could not be parsed
+     *
+     * @param line    the line number, starting at 1
+     * @param message the reason the line was rejected
+     */
+    void addError(int line, String message) {
+        errorLines.add(line);
+        errorMessages.add(message);
+    }
+
+    /**
+     * Appends the members and errors of a result parsed from the lines that follow this one.
+     * The error line numbers of the other result are shifted by the lines read here
+     *
+     * @param other the result for the next region of the file
+     */
+    void append(LoadResult other) {
+        if (numMembers + other.numMembers > members.length) {
+            members = Arrays.copyOf(members, Math.max(members.length * GROW_FACTOR, numMembers + other.numMembers));
+        }
+        System.arraycopy(other.members, 0, members, numMembers, other.numMembers);
+        numMembers += other.numMembers;
+        for (int i = 0; i < other.errorLines.size(); i++) {
+            errorLines.add(numLines + other.errorLines.get(i));
+        }
+        errorMessages.addAll(other.errorMessages);
+        numLines += other.numLines;
+    }
+
+    /**
+     * Counts a line as read
+     */
+    void countLine() {
+        numLines++;
+    }
+}
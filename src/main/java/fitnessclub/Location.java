@@ -14,6 +14,7 @@ public enum Location {
 
     private final String county;
     private final String zipCode;
+    private final String text;
 
     /**
      * Parameterized constructor requires 2 parameters to create a Location object
@@ -24,6 +25,7 @@ public enum Location {
     Location(String county, String zipCode) {
         this.county = county;
         this.zipCode = zipCode;
+        this.text = this.name() + ", " + zipCode + ", " + county;
     }
 
     /**
@@ -60,6 +62,6 @@ public enum Location {
      */
     @Override
     public String toString() {
-        return this.name() + ", " + this.zipCode + ", " + this.county;
+        return this.text;
     }
 }
@@ -11,6 +11,7 @@ public class Member implements Comparable<Member> {
     private Profile profile;
     private Date expire;
     private Location homeStudio;
+    private MutationListener listener; //set while the member is in a list that has listeners
 
     /**
      * Parameterized constructor requires 3 parameters to create a Member object
@@ -34,6 +35,15 @@ public class Member implements Comparable<Member> {
         return profile;
     }
 
+    /**
+     * Getter method returns the expiration date of the membership
+     *
+     * @return the expiration date of the membership
+     */
+    public Date getExpire() {
+        return expire;
+    }
+
     /**
      * Getter method returns the home studio location of the member
      *
@@ -43,6 +53,24 @@ public class Member implements Comparable<Member> {
         return homeStudio;
     }
 
+    /**
+     * Getter method returns the listener told about changes to the member's counters
+     *
+     * @return the dispatcher of the list the member is in; null if nothing is listening
+     */
+    MutationListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Setter method to set the listener told about changes to the member's counters
+     *
+     * @param listener the dispatcher of the list the member is in; null to stop reporting changes
+     */
+    void setListener(MutationListener listener) {
+        this.listener = listener;
+    }
+
     /**
      * Calculates the next due membership bill amount.
      * Shows dynamic binding (polymorphism) since subclasses override this
@@ -55,16 +83,42 @@ public class Member implements Comparable<Member> {
         return 0.0;
     }
 
+    /**
+     * Takes one guest pass in a single atomic step, so that terminals checking in guests
+     * at the same time never hand out more passes than the member has.
+     * Shows dynamic binding (polymorphism) since Family and Premium override this
+     *
+     * @return the base implementation returns false, since a member has no guest passes;
+     * when overridden, true if a pass was available and is now used
+     */
+    public boolean tryUseGuestPass() {
+        return false;
+    }
+
+    /**
+     * Gives back a guest pass taken with tryUseGuestPass.
+     * The base implementation does nothing, since a member has no guest passes
+     */
+    public void returnGuestPass() {
+    }
+
     /**
      * Determines if the membership has expired
      *
      * @return true if the membership is expired; false otherwise
      */
     public boolean isExpired() {
-        if (expire.compareTo(new Date()) == -1) {
-            return true;
-        }
-        return false;
+        return isExpired(new Date());
+    }
+
+    /**
+     * Determines if the membership had expired by a given date
+     *
+     * @param today the date to check against, usually today's date
+     * @return true if the membership expired before that date; false otherwise
+     */
+    public boolean isExpired(Date today) {
+        return getExpire().compareTo(today) < 0;
     }
 
     /**
@@ -82,6 +136,16 @@ public class Member implements Comparable<Member> {
         return false;
     }
 
+    /**
+     * Returns a hash code consistent with equals, based on the profile
+     *
+     * @return the hash code of the member
+     */
+    @Override
+    public int hashCode() {
+        return this.getProfile().hashCode();
+    }
+
     /**
      * Compares two Member objects based on their profile
      *
@@ -91,21 +155,35 @@ public class Member implements Comparable<Member> {
      */
     @Override
     public int compareTo(Member o) {
-        return this.profile.compareTo(o.profile);
+        return this.getProfile().compareTo(o.getProfile());
     }
 
     /**
-     * Returns a string representation of a Member object
+     * Appends the string representation of a Member object to a builder.
+     * Reports reuse one builder and one date for every row instead of calling toString
      *
-     * @return a string representation of the member
+     * @param out   the builder to append to
+     * @param today the date to check the expiration against
+     * @return the builder
      */
-    @Override
-    public String toString() {
+    public StringBuilder appendTo(StringBuilder out, Date today) {
         String membershipExpiry = "Membership expires ";
 
-        if (isExpired()) {
+        if (isExpired(today)) {
             membershipExpiry = "Membership expired ";
         }
-        return this.profile + ", " + membershipExpiry + this.expire + ", Home Studio: " + homeStudio;
+        getProfile().appendTo(out).append(", ").append(membershipExpiry);
+        getExpire().appendTo(out).append(", Home Studio: ").append(getHomeStudio());
+        return out;
+    }
+
+    /**
+     * Returns a string representation of a Member object
+     *
+     * @return a string representation of the member
+     */
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(), new Date()).toString();
     }
 }
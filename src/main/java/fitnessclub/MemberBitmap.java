@@ -0,0 +1,466 @@
+package fitnessclub;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of member ids in the style of a roaring bitmap. Ids are split by their high
+ * 16 bits into containers kept sorted by that key. A container holds the low 16 bits either as
+ * a sorted array, while it has few ids, or as a 65536-bit bitmap once it has more, so both
+ * sparse and dense sets stay small. Membership checks are a binary search over the few
+ * containers and one bit or array lookup, and intersections and unions work container by container.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class MemberBitmap {
+    private static final int ARRAY_MAX = 4096; //above this a container switches to a bitmap
+    private static final int BITMAP_WORDS = (1 << 16) / Long.SIZE;
+    private static final int LOW_BITS = 16;
+    private static final int LOW_MASK = 0xFFFF;
+    private static final int GROW_FACTOR = 2;
+
+    private char[] keys; //high 16 bits of the ids in each container, sorted
+    private Container[] containers;
+    private int size; //number of containers
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates an empty bitmap
+     */
+    public MemberBitmap() {
+        keys = new char[0];
+        containers = new Container[0];
+        size = 0;
+    }
+
+    /**
+     * Adds an id to the set
+     *
+     * @param id the non-negative id to add
+     * @return true if the id is new and is added; false if it was already in the set
+     */
+    public boolean add(int id) {
+        char high = (char) (id >>> LOW_BITS);
+        int index = find(high);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, high, new Container());
+        }
+        return containers[index].add(id & LOW_MASK);
+    }
+
+    /**
+     * Removes an id from the set
+     *
+     * @param id the id to remove
+     * @return true if the id was in the set and is removed; false otherwise
+     */
+    public boolean remove(int id) {
+        int index = find((char) (id >>> LOW_BITS));
+        if (index < 0 || !containers[index].remove(id & LOW_MASK)) {
+            return false;
+        }
+        if (containers[index].cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            size--;
+            containers[size] = null;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the set contains an id
+     *
+     * @param id the id to check
+     * @return true if the id is in the set; false otherwise
+     */
+    public boolean contains(int id) {
+        int index = find((char) (id >>> LOW_BITS));
+        return index >= 0 && containers[index].contains(id & LOW_MASK);
+    }
+
+    /**
+     * A getter method returns the number of ids in the set
+     *
+     * @return the number of ids
+     */
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    /**
+     * Checks if the set is empty
+     *
+     * @return true if the set has no ids; false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls an action with every id in the set, in increasing order
+     *
+     * @param action the action to call
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << LOW_BITS, action);
+        }
+    }
+
+    /**
+     * Returns the ids in the set
+     *
+     * @return an array of the ids, in increasing order
+     */
+    public int[] toArray() {
+        int[] ids = new int[getCardinality()];
+        int[] next = {0};
+        forEach(id -> ids[next[0]++] = id);
+        return ids;
+    }
+
+    /**
+     * Creates the intersection of two sets
+     *
+     * @param a one set
+     * @param b the other set
+     * @return a new set of the ids in both sets
+     */
+    public static MemberBitmap and(MemberBitmap a, MemberBitmap b) {
+        MemberBitmap result = new MemberBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Container container = a.containers[i].and(b.containers[j]);
+                if (container.cardinality > 0) {
+                    result.insert(result.size, a.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the union of two sets
+     *
+     * @param a one set
+     * @param b the other set
+     * @return a new set of the ids in either set
+     */
+    public static MemberBitmap or(MemberBitmap a, MemberBitmap b) {
+        MemberBitmap result = new MemberBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.insert(result.size, a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.insert(result.size, b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.insert(result.size, a.keys[i], a.containers[i].or(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the ids two sets have in common without building their intersection
+     *
+     * @param a one set
+     * @param b the other set
+     * @return the number of ids in both sets
+     */
+    public static int andCardinality(MemberBitmap a, MemberBitmap b) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                count += a.containers[i].andCardinality(b.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Helper method to find the container of a high key
+     *
+     * @param high the high 16 bits of an id
+     * @return the index of the container; -(insertion point) - 1 if there is none
+     */
+    private int find(char high) {
+        return Arrays.binarySearch(keys, 0, size, high);
+    }
+
+    /**
+     * Helper method to insert a container at an index, growing the arrays if they are full
+     *
+     * @param index     the index to insert at
+     * @param high      the high key of the container
+     * @param container the container
+     */
+    private void insert(int index, char high, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(1, keys.length * GROW_FACTOR);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = high;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * The low 16 bits of the ids sharing one high key, as a sorted array or as a bitmap
+     */
+    private static class Container {
+        private char[] values; //sorted low bits while the container is an array; null as a bitmap
+        private long[] bits; //one bit per low value while the container is a bitmap; null as an array
+        private int cardinality;
+
+        /**
+         * Default constructor/no-argument constructor.
+         * Creates an empty array container
+         */
+        Container() {
+            values = new char[1];
+            cardinality = 0;
+        }
+
+        /**
+         * Checks if the container holds a low value
+         *
+         * @param low the low 16 bits of an id
+         * @return true if the value is in the container; false otherwise
+         */
+        boolean contains(int low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+        }
+
+        /**
+         * Adds a low value, switching to a bitmap when the array would get too large
+         *
+         * @param low the low 16 bits of an id
+         * @return true if the value is new and is added; false otherwise
+         */
+        boolean add(int low) {
+            if (bits == null) {
+                int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+                if (index >= 0) {
+                    return false;
+                }
+                if (cardinality < ARRAY_MAX) {
+                    index = -index - 1;
+                    if (cardinality == values.length) {
+                        values = Arrays.copyOf(values, Math.min(values.length * GROW_FACTOR, ARRAY_MAX));
+                    }
+                    System.arraycopy(values, index, values, index + 1, cardinality - index);
+                    values[index] = (char) low;
+                    cardinality++;
+                    return true;
+                }
+                toBitmap();
+            }
+            long bit = 1L << low;
+            if ((bits[low >>> 6] & bit) != 0) {
+                return false;
+            }
+            bits[low >>> 6] |= bit;
+            cardinality++;
+            return true;
+        }
+
+        /**
+         * Removes a low value, switching back to an array once the bitmap is small enough
+         *
+         * @param low the low 16 bits of an id
+         * @return true if the value was in the container and is removed; false otherwise
+         */
+        boolean remove(int low) {
+            if (bits == null) {
+                int index = Arrays.binarySearch(values, 0, cardinality, (char) low);
+                if (index < 0) {
+                    return false;
+                }
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+                return true;
+            }
+            long bit = 1L << low;
+            if ((bits[low >>> 6] & bit) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~bit;
+            cardinality--;
+            if (cardinality <= ARRAY_MAX) {
+                toArray();
+            }
+            return true;
+        }
+
+        /**
+         * Calls an action with every id in the container, in increasing order
+         *
+         * @param high   the high bits of the ids, already shifted into place
+         * @param action the action to call
+         */
+        void forEach(int high, IntConsumer action) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | values[i]);
+                }
+                return;
+            }
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    action.accept(high | (word << 6) | Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+        }
+
+        /**
+         * Creates the intersection of two containers
+         *
+         * @param other the other container
+         * @return a new container with the values in both
+         */
+        Container and(Container other) {
+            Container result = new Container();
+            if (bits != null && other.bits != null) {
+                result.bits = new long[BITMAP_WORDS];
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    result.bits[word] = bits[word] & other.bits[word];
+                    result.cardinality += Long.bitCount(result.bits[word]);
+                }
+                result.values = null;
+                if (result.cardinality <= ARRAY_MAX) {
+                    result.toArray();
+                }
+                return result;
+            }
+            Container array = bits == null ? this : other;
+            Container probe = array == this ? other : this;
+            result.values = new char[Math.max(1, array.cardinality)];
+            for (int i = 0; i < array.cardinality; i++) {
+                if (probe.contains(array.values[i])) {
+                    result.values[result.cardinality++] = array.values[i];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Creates the union of two containers
+         *
+         * @param other the other container
+         * @return a new container with the values in either
+         */
+        Container or(Container other) {
+            Container result = copy();
+            if (result.bits == null && other.bits != null) {
+                result.toBitmap();
+            }
+            other.forEach(0, result::add);
+            return result;
+        }
+
+        /**
+         * Counts the values two containers have in common
+         *
+         * @param other the other container
+         * @return the number of values in both
+         */
+        int andCardinality(Container other) {
+            int count = 0;
+            if (bits != null && other.bits != null) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    count += Long.bitCount(bits[word] & other.bits[word]);
+                }
+                return count;
+            }
+            Container array = bits == null ? this : other;
+            Container probe = array == this ? other : this;
+            for (int i = 0; i < array.cardinality; i++) {
+                if (probe.contains(array.values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Creates a copy of the container
+         *
+         * @return a new container with the same values
+         */
+        Container copy() {
+            Container copy = new Container();
+            copy.cardinality = cardinality;
+            if (bits != null) {
+                copy.bits = bits.clone();
+                copy.values = null;
+            } else {
+                copy.values = Arrays.copyOf(values, Math.max(1, cardinality));
+            }
+            return copy;
+        }
+
+        /**
+         * Helper method to switch the container from a sorted array to a bitmap
+         */
+        private void toBitmap() {
+            bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        /**
+         * Helper method to switch the container from a bitmap to a sorted array
+         */
+        private void toArray() {
+            char[] array = new char[Math.max(1, cardinality)];
+            int next = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    array[next++] = (char) ((word << 6) | Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+            values = array;
+            bits = null;
+        }
+    }
+}
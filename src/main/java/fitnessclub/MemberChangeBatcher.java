@@ -0,0 +1,156 @@
+package fitnessclub;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Feeds the changes made to a member list into a member table, at most once per JavaFX pulse.
+ * Listens to the list for members added and removed and for their guest passes and classes
+ * attended, on whichever thread makes the change, and queues the member that changed.
+ * The first change after a pulse starts an AnimationTimer; on the next pulse the queue is drained,
+ * each member kept once, and the batch handed to MemberTableModel.applyChanges, which updates
+ * only the rows that changed. The timer stops itself on a pulse with nothing queued, so an idle
+ * window does not request pulses. A burst of check-ins thus costs one small table change per frame.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class MemberChangeBatcher implements MutationListener {
+    private final MemberTableModel model;
+    private final ConcurrentLinkedQueue<Member> changes;
+    private final AtomicBoolean scheduled; //true once a change is queued until the next pulse drains it
+    private final AnimationTimer pulse;
+    private MemberList list;
+
+    /**
+     * Parameterized constructor requires 1 parameter to create a MemberChangeBatcher
+     *
+     * @param model the table rows to apply the changes to
+     */
+    public MemberChangeBatcher(MemberTableModel model) {
+        this.model = model;
+        changes = new ConcurrentLinkedQueue<>();
+        scheduled = new AtomicBoolean(false);
+        pulse = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * Starts listening to a list, and stops listening to the previous one.
+     * Must be called on the FX thread
+     *
+     * @param list the list shown by the table; null to stop listening
+     */
+    public void attach(MemberList list) {
+        if (this.list != null) {
+            this.list.removeListener(this);
+        }
+        changes.clear();
+        this.list = list;
+        if (list != null) {
+            list.addListener(this);
+        }
+    }
+
+    /**
+     * Queues a member added to the list
+     *
+     * @param list   the list that changed
+     * @param member the member added
+     */
+    @Override
+    public void memberAdded(MemberList list, Member member) {
+        queue(member);
+    }
+
+    /**
+     * Queues a member removed from the list
+     *
+     * @param list   the list that changed
+     * @param member the member removed
+     */
+    @Override
+    public void memberRemoved(MemberList list, Member member) {
+        queue(member);
+    }
+
+    /**
+     * Queues a Premium member who used a guest pass
+     *
+     * @param member the member that changed
+     */
+    @Override
+    public void guestPassUsed(Premium member) {
+        queue(member);
+    }
+
+    /**
+     * Queues a Premium member who got a guest pass back
+     *
+     * @param member the member that changed
+     */
+    @Override
+    public void guestPassAdded(Premium member) {
+        queue(member);
+    }
+
+    /**
+     * Queues a Family member whose guest pass was set
+     *
+     * @param member the member that changed
+     * @param guest  true if a guest pass is now available; false otherwise
+     */
+    @Override
+    public void guestSet(Family member, boolean guest) {
+        queue(member);
+    }
+
+    /**
+     * Queues a Basic member who attended a class
+     *
+     * @param member the member that changed
+     */
+    @Override
+    public void classAttended(Basic member) {
+        queue(member);
+    }
+
+    /**
+     * Helper method to queue a changed member, starting the timer if it is the first change
+     * since the last pulse
+     *
+     * @param member the member that changed
+     */
+    private void queue(Member member) {
+        changes.add(member);
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(pulse::start);
+        }
+    }
+
+    /**
+     * Helper method to apply the changes queued since the last pulse, or to stop
+     * the timer if there are none
+     */
+    private void flush() {
+        if (!scheduled.getAndSet(false)) {
+            pulse.stop();
+            return;
+        }
+        Set<Member> batch = Collections.newSetFromMap(new IdentityHashMap<>());
+        Member member;
+        while ((member = changes.poll()) != null) {
+            batch.add(member);
+        }
+        model.applyChanges(batch);
+    }
+}
@@ -0,0 +1,454 @@
+package fitnessclub;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads members from a text file by memory-mapping it and tokenizing the bytes in place.
+ * Each line has the format: type firstName lastName dob expire homeStudio,
+ * with the type being B, F or P and the dates in the format mm/dd/yyyy.
+ * Lines that cannot be parsed are recorded as errors instead of stopping the load.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class MemberFileLoader {
+    private static final int NUM_FIELDS = 6;
+    private static final int MEMBER_TYPE_INDEX = 0;
+    private static final int FIRST_NAME_INDEX = 1;
+    private static final int LAST_NAME_INDEX = 2;
+    private static final int DOB_INDEX = 3;
+    private static final int EXPIRE_INDEX = 4;
+    private static final int HOME_STUDIO_INDEX = 5;
+    private static final long WINDOW_BYTES = 1L << 30;
+    private static final int SCRATCH_BYTES = 64;
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int CASE_BIT = 0x20;
+    private static final byte[][] LOCATION_NAMES = locationNames();
+
+    private final ByteBuffer buffer;
+    private final ByteChars chars; //the buffer read as characters, for Date.parse
+    private final LoadResult result;
+    private final int[] tokenStart;
+    private final int[] tokenEnd;
+    private byte[] scratch;
+
+    /**
+     * Parameterized constructor requires 2 parameters to create a loader over a buffer
+     *
+     * @param buffer the bytes of the member file
+     * @param result the result the parsed members and errors are added to
+     */
+    MemberFileLoader(ByteBuffer buffer, LoadResult result) {
+        this.buffer = buffer;
+        this.chars = new ByteChars(buffer);
+        this.result = result;
+        tokenStart = new int[NUM_FIELDS];
+        tokenEnd = new int[NUM_FIELDS];
+        scratch = new byte[SCRATCH_BYTES];
+    }
+
+    /**
+     * Loads all the members in a text file on the calling thread.
+     * The file is mapped in windows of up to 1 GB that end on a line boundary
+     *
+     * @param file the text file from which to load the members
+     * @return the parsed members and the errors for the lines that were rejected
+     * @throws IOException when an I/O error occurs when trying to access/read the file
+     */
+    public static LoadResult load(File file) throws IOException {
+        return load(file, false, null);
+    }
+
+    /**
+     * Loads all the members in a text file on the calling thread, reporting each chunk
+     * of about 1 MB as it is parsed
+     *
+     * @param file     the text file from which to load the members
+     * @param progress receives the size of each chunk parsed
+     * @return the parsed members and the errors for the lines that were rejected
+     * @throws IOException when an I/O error occurs when trying to access/read the file
+     */
+    public static LoadResult load(File file, LoadProgress progress) throws IOException {
+        return load(file, false, progress);
+    }
+
+    /**
+     * Loads all the members in a text file, parsing chunks of about 1 MB in parallel
+     * on the common fork/join pool. Members and errors come back in file order,
+     * exactly as load(File) would return them
+     *
+     * @param file the text file from which to load the members
+     * @return the parsed members and the errors for the lines that were rejected
+     * @throws IOException when an I/O error occurs when trying to access/read the file
+     */
+    public static LoadResult loadParallel(File file) throws IOException {
+        return load(file, true, null);
+    }
+
+    /**
+     * Loads all the members in a text file in parallel, reporting each chunk as it is parsed
+     *
+     * @param file     the text file from which to load the members
+     * @param progress receives the size of each chunk parsed, from several threads
+     * @return the parsed members and the errors for the lines that were rejected
+     * @throws IOException when an I/O error occurs when trying to access/read the file
+     */
+    public static LoadResult loadParallel(File file, LoadProgress progress) throws IOException {
+        return load(file, true, progress);
+    }
+
+    /**
+     * Helper method to map the file window by window and parse each window
+     *
+     * @param file     the text file from which to load the members
+     * @param parallel true to split each window into chunks parsed in parallel
+     * @param progress receives the size of each chunk parsed; null if not needed
+     * @return the parsed members and the errors for the lines that were rejected
+     * @throws IOException when an I/O error occurs when trying to access/read the file
+     */
+    private static LoadResult load(File file, boolean parallel, LoadProgress progress) throws IOException {
+        LoadResult result = new LoadResult();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                long length = Math.min(fileSize - position, WINDOW_BYTES);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < fileSize) {
+                    end = lastLineEnd(window, end);
+                    if (end == 0) {
+                        throw new IOException("line longer than " + WINDOW_BYTES + " bytes at offset " + position);
+                    }
+                }
+                if (parallel) {
+                    result.append(ForkJoinPool.commonPool().invoke(new ChunkTask(window, 0, end, progress)));
+                } else if (progress == null) {
+                    new MemberFileLoader(window, result).parse(0, end);
+                } else {
+                    MemberFileLoader loader = new MemberFileLoader(window, result);
+                    int chunkStart = 0;
+                    while (chunkStart < end) {
+                        int chunkEnd = nextLineStart(window, Math.min(chunkStart + CHUNK_BYTES, end), end);
+                        int linesBefore = result.getNumLines();
+                        loader.parse(chunkStart, chunkEnd);
+                        progress.chunkParsed(chunkEnd - chunkStart, result.getNumLines() - linesBefore);
+                        chunkStart = chunkEnd;
+                    }
+                }
+                position += end;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds where the last complete line in a region of a buffer ends
+     *
+     * @param buffer the buffer to search
+     * @param end    the index just past the region, which starts at 0
+     * @return the index just past the last newline; 0 if there is none
+     */
+    static int lastLineEnd(ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds where the line holding a given index ends
+     *
+     * @param buffer the buffer to search
+     * @param index  the index to start searching from
+     * @param end    the index just past the region
+     * @return the index just past the next newline; end if there is none
+     */
+    static int nextLineStart(ByteBuffer buffer, int index, int end) {
+        for (int i = index; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Parses every line in a region of the buffer
+     *
+     * @param start the index of the first byte of the region; must be the start of a line
+     * @param end   the index just past the region
+     */
+    void parse(int start, int end) {
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            result.countLine();
+            parseLine(lineStart, lineEnd, result.getNumLines());
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Helper method to parse a single line into a member
+     *
+     * @param start      the index of the first byte of the line
+     * @param end        the index of the newline, or the end of the region
+     * @param lineNumber the line number used when reporting an error
+     */
+    private void parseLine(int start, int end, int lineNumber) {
+        int numTokens = tokenize(start, end);
+        if (numTokens == 0) {
+            return;
+        }
+        if (numTokens < NUM_FIELDS) {
+            result.addError(lineNumber, "expected " + NUM_FIELDS + " fields but found " + numTokens);
+            return;
+        }
+        byte memberType = 0;
+        if (tokenEnd[MEMBER_TYPE_INDEX] - tokenStart[MEMBER_TYPE_INDEX] == 1) {
+            memberType = buffer.get(tokenStart[MEMBER_TYPE_INDEX]);
+        }
+        if (memberType != 'B' && memberType != 'F' && memberType != 'P') {
+            result.addError(lineNumber, "unknown membership type " + token(MEMBER_TYPE_INDEX));
+            return;
+        }
+        Date dob = Date.parse(chars, tokenStart[DOB_INDEX], tokenEnd[DOB_INDEX]);
+        if (dob == null || !dob.isValid()) {
+            result.addError(lineNumber, "invalid date of birth " + token(DOB_INDEX));
+            return;
+        }
+        Date expire = Date.parse(chars, tokenStart[EXPIRE_INDEX], tokenEnd[EXPIRE_INDEX]);
+        if (expire == null || !expire.isValid()) {
+            result.addError(lineNumber, "invalid expiration date " + token(EXPIRE_INDEX));
+            return;
+        }
+        Location homeStudio = parseLocation(tokenStart[HOME_STUDIO_INDEX], tokenEnd[HOME_STUDIO_INDEX]);
+        if (homeStudio == null) {
+            result.addError(lineNumber, "unknown studio location " + token(HOME_STUDIO_INDEX));
+            return;
+        }
+
+        Profile profile = new Profile(token(FIRST_NAME_INDEX), token(LAST_NAME_INDEX), dob);
+        if (memberType == 'B') {
+            result.addMember(new Basic(profile, expire, homeStudio, MemberList.BASIC_INITIAL_CLASSES));
+        } else if (memberType == 'F') {
+            result.addMember(new Family(profile, expire, homeStudio, true));
+        } else {
+            result.addMember(new Premium(profile, expire, homeStudio, MemberList.PREMIUM_GUEST_PASS_LIMIT));
+        }
+    }
+
+    /**
+     * Helper method to split a line on whitespace, recording where the first six tokens start and end
+     *
+     * @param start the index of the first byte of the line
+     * @param end   the index just past the line
+     * @return the number of tokens found, at most six
+     */
+    private int tokenize(int start, int end) {
+        int numTokens = 0;
+        int i = start;
+        while (i < end && numTokens < NUM_FIELDS) {
+            while (i < end && isWhitespace(buffer.get(i))) {
+                i++;
+            }
+            if (i == end) {
+                break;
+            }
+            tokenStart[numTokens] = i;
+            while (i < end && !isWhitespace(buffer.get(i))) {
+                i++;
+            }
+            tokenEnd[numTokens] = i;
+            numTokens++;
+        }
+        return numTokens;
+    }
+
+    /**
+     * Helper method that checks if a byte separates tokens
+     *
+     * @param b the byte to check
+     * @return true if the byte is a space, tab or carriage return; false otherwise
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Helper method to match a studio location by name, ignoring case, straight from the bytes
+     *
+     * @param start the index of the first byte of the name
+     * @param end   the index just past the name
+     * @return the matching location; null if no location has that name
+     */
+    private Location parseLocation(int start, int end) {
+        Location[] locations = Location.values();
+        for (int l = 0; l < LOCATION_NAMES.length; l++) {
+            byte[] name = LOCATION_NAMES[l];
+            if (name.length != end - start) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length && (buffer.get(start + i) | CASE_BIT) == (name[i] | CASE_BIT)) {
+                i++;
+            }
+            if (i == name.length) {
+                return locations[l];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method to decode one of the tokens of the current line
+     *
+     * @param index the position of the token in the line
+     * @return the token as a string
+     */
+    private String token(int index) {
+        int length = tokenEnd[index] - tokenStart[index];
+        if (length > scratch.length) {
+            scratch = new byte[length];
+        }
+        buffer.get(tokenStart[index], scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Helper method that lists the names of the studio locations as bytes, indexed by ordinal
+     *
+     * @return the location names
+     */
+    private static byte[][] locationNames() {
+        Location[] locations = Location.values();
+        byte[][] names = new byte[locations.length][];
+        for (Location location : locations) {
+            names[location.ordinal()] = location.name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+
+    /**
+     * Reads the bytes of the member file as characters, one byte per character, so the dates
+     * are parsed by Date.parse in place rather than by a second copy of the date parser.
+     * Only the ASCII digits and slashes of a date matter, so no decoding is needed
+     */
+    private static class ByteChars implements CharSequence {
+        private static final int BYTE_MASK = 0xFF;
+
+        private final ByteBuffer buffer;
+
+        /**
+         * Parameterized constructor requires 1 parameter to create a view over a buffer
+         *
+         * @param buffer the bytes of the member file
+         */
+        ByteChars(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Returns the number of bytes in the buffer
+         *
+         * @return the limit of the buffer
+         */
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        /**
+         * Returns a byte of the buffer as a character
+         *
+         * @param index the index of the byte
+         * @return the byte, from 0 to 255
+         */
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & BYTE_MASK);
+        }
+
+        /**
+         * Returns some bytes of the buffer as a string of the same characters
+         *
+         * @param start the index of the first byte
+         * @param end   the index just past the last byte
+         * @return the bytes as a string
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder out = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                out.append(charAt(i));
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * Fork/join task that parses a region of the buffer, splitting it in half on a line
+     * boundary until the chunks are small enough to parse directly.
+     * The left half's result is appended to before the right half's, keeping file order
+     */
+    private static class ChunkTask extends RecursiveTask<LoadResult> {
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final LoadProgress progress;
+
+        /**
+         * Parameterized constructor requires 4 parameters to create a ChunkTask
+         *
+         * @param buffer   the bytes of the member file, shared read-only by all tasks
+         * @param start    the index of the first byte of the region; must be the start of a line
+         * @param end      the index just past the region; must be the end of a line
+         * @param progress receives the size of each leaf chunk parsed; null if not needed
+         */
+        ChunkTask(ByteBuffer buffer, int start, int end, LoadProgress progress) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.progress = progress;
+        }
+
+        /**
+         * Parses the region, forking the left half when it is larger than one chunk
+         *
+         * @return the members and errors of the region, in file order
+         */
+        @Override
+        protected LoadResult compute() {
+            if (end - start > CHUNK_BYTES) {
+                int middle = nextLineStart(buffer, start + (end - start) / 2, end);
+                if (middle < end) {
+                    ChunkTask left = new ChunkTask(buffer, start, middle, progress);
+                    left.fork();
+                    LoadResult right = new ChunkTask(buffer, middle, end, progress).compute();
+                    LoadResult result = left.join();
+                    result.append(right);
+                    return result;
+                }
+            }
+            LoadResult result = new LoadResult();
+            new MemberFileLoader(buffer, result).parse(start, end);
+            if (progress != null) {
+                progress.chunkParsed(end - start, result.getNumLines());
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package fitnessclub;
+
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out the member ids used by the enrollment bitmaps of the classes of one schedule.
+ * Ids belong to profiles, so every Member object with the same profile has the same id.
+ * Each class roster holding a profile counts as one reference to its id; once no roster
+ * holds the profile anymore its id is given back and reused, lowest first, so the ids stay
+ * dense however many members come and go. A schedule created by a reload shares the
+ * registry of the schedule it replaces, so the classes it keeps keep their ids.
+ * Safe to use from several threads at once.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+class MemberIds {
+    private static final int NO_ID = -1;
+
+    private final ConcurrentHashMap<Profile, Slot> slots;
+    private final BitSet used; //ids held by a profile; guarded by itself
+    private int lowestFree; //no id below this is free; guarded by used
+
+    /**
+     * The id of one profile and the number of rosters holding it
+     */
+    private static final class Slot {
+        private final int id;
+        private int refs; //changed only inside the map's compute for the profile
+
+        /**
+         * Parameterized constructor requires 1 parameter to create a Slot
+         *
+         * @param id the id of the profile
+         */
+        Slot(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates a registry with no ids handed out
+     */
+    MemberIds() {
+        slots = new ConcurrentHashMap<>();
+        used = new BitSet();
+        lowestFree = 0;
+    }
+
+    /**
+     * Takes a reference to the id of a profile, handing out the lowest free id if it has none
+     *
+     * @param profile the profile added to a roster
+     * @return the id of the profile
+     */
+    int acquire(Profile profile) {
+        return slots.compute(profile, (key, slot) -> {
+            if (slot == null) {
+                slot = new Slot(nextId());
+            }
+            slot.refs++;
+            return slot;
+        }).id;
+    }
+
+    /**
+     * Gives back a reference to the id of a profile, freeing the id when it was the last one
+     *
+     * @param profile the profile removed from a roster
+     */
+    void release(Profile profile) {
+        slots.computeIfPresent(profile, (key, slot) -> {
+            if (--slot.refs > 0) {
+                return slot;
+            }
+            synchronized (used) {
+                used.clear(slot.id);
+                lowestFree = Math.min(lowestFree, slot.id);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Returns the id of a profile without handing one out, for lookups
+     *
+     * @param profile the profile
+     * @return the id of the profile; -1 if no roster holds it
+     */
+    int find(Profile profile) {
+        Slot slot = slots.get(profile);
+        return slot == null ? NO_ID : slot.id;
+    }
+
+    /**
+     * A getter method returns the number of profiles holding an id
+     *
+     * @return the number of ids handed out
+     */
+    int size() {
+        return slots.size();
+    }
+
+    /**
+     * Helper method to take the lowest id not held by a profile
+     *
+     * @return the id
+     */
+    private int nextId() {
+        synchronized (used) {
+            int id = used.nextClearBit(lowestFree);
+            used.set(id);
+            lowestFree = id + 1;
+            return id;
+        }
+    }
+}
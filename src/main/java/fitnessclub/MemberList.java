@@ -2,7 +2,14 @@ package fitnessclub;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 /**
  * This class defines the ADT MemberList; an instance of Memberlist
@@ -12,26 +19,36 @@ import java.util.Scanner;
  */
 public class MemberList {
     private static final int INITIAL_CAPACITY = 4;
-    private static final int GROW_CAPACITY = 4;
+    private static final int GROW_FACTOR = 2;
     private static final int NOT_FOUND = -1;
-    private static final int MEMBER_TYPE_INDEX = 0;
-    private static final int FIRST_NAME_INDEX = 1;
-    private static final int LAST_NAME_INDEX = 2;
-    private static final int DOB_INDEX = 3;
-    private static final int EXPIRE_INDEX = 4;
-    private static final int HOME_STUDIO_INDEX = 5;
     public static final int BASIC_INITIAL_CLASSES = 0;
     public static final int PREMIUM_GUEST_PASS_LIMIT = 3;
+    private static final Location[] COUNTY_ORDER = countyOrder();
 
     private Member[] members; //holds Basic, Family, or Premium objects
     private int size; //number of objects in the array
+    private HashMap<Profile, Integer> profileIndex; //profile -> index in the array
+    private EnumMap<Location, LinkedHashSet<Member>> byStudio; //built on the first printByCounty
+    private TreeSet<Member> byProfile; //built on the first printByMember
+    private MutationDispatcher dispatcher; //created when the first listener is added
 
     /**
      * Default constructor/no-argument constructor
      */
     public MemberList() {
-        members = new Member[INITIAL_CAPACITY];
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Parameterized constructor requires 1 parameter to create a MemberList
+     * sized up front for an expected number of members
+     *
+     * @param initialCapacity the number of members the list can hold before growing
+     */
+    public MemberList(int initialCapacity) {
+        members = new Member[Math.max(initialCapacity, INITIAL_CAPACITY)];
         size = 0;
+        profileIndex = new HashMap<>();
     }
 
     /**
@@ -59,23 +76,205 @@ public class MemberList {
      * @return the integer index of the member; -1 if not found in the list
      */
     private int find(Member member) {
-        for (int index = 0; index < size; index++) {
-            if (members[index].compareTo(member) == 0) {
-                return index;
+        return findProfile(member.getProfile());
+    }
+
+    /**
+     * Helper method to find the index of the member with a given profile in the list of members
+     *
+     * @param profile the profile to find in the list
+     * @return the integer index of the member; -1 if not found in the list
+     */
+    private int findProfile(Profile profile) {
+        Integer index = profileIndex.get(profile);
+        if (index == null) {
+            return NOT_FOUND;
+        }
+        return index;
+    }
+
+    /**
+     * Helper method to double the capacity of the members list,
+     * or more if needed to hold the given number of members
+     *
+     * @param minCapacity the minimum number of members the list must be able to hold
+     */
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(members.length * GROW_FACTOR, minCapacity);
+        members = Arrays.copyOf(members, newCapacity);
+    }
+
+    /**
+     * Makes sure the list can hold at least the given number of members without growing again
+     *
+     * @param minCapacity the minimum number of members the list must be able to hold
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > members.length) {
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * Helper method that orders the studio locations by county and then zip code
+     *
+     * @return the locations in the order members are listed by county
+     */
+    private static Location[] countyOrder() {
+        Location[] order = Location.values();
+        Arrays.sort(order, Comparator.comparing(Location::getCounty).thenComparing(Location::getZipCode));
+        return order;
+    }
+
+    /**
+     * Helper method to add a member to the sorted views that have been built
+     *
+     * @param member the member added to the list
+     */
+    private void addToViews(Member member) {
+        if (byStudio != null) {
+            byStudio.get(member.getHomeStudio()).add(member);
+        }
+        if (byProfile != null) {
+            byProfile.add(member);
+        }
+    }
+
+    /**
+     * Helper method to remove a member from the sorted views that have been built
+     *
+     * @param member the member removed from the list
+     */
+    private void removeFromViews(Member member) {
+        if (byStudio != null) {
+            byStudio.get(member.getHomeStudio()).remove(member);
+        }
+        if (byProfile != null) {
+            byProfile.remove(member);
+        }
+    }
+
+    /**
+     * Registers a listener to be told about members added to and removed from the list,
+     * and about changes to the counters of the members in the list
+     *
+     * @param listener the listener to register
+     */
+    public void addListener(MutationListener listener) {
+        if (dispatcher == null) {
+            dispatcher = new MutationDispatcher();
+            for (int i = 0; i < size; i++) {
+                members[i].setListener(dispatcher);
             }
         }
-        return NOT_FOUND;
+        dispatcher.add(listener);
+    }
+
+    /**
+     * Registers a listener to be told about changes before every other listener,
+     * so it can refuse a change by throwing before anyone else has seen it
+     *
+     * @param listener the listener to register
+     */
+    void addFirstListener(MutationListener listener) {
+        addListener(listener);
+        dispatcher.remove(listener);
+        dispatcher.addFirst(listener);
+    }
+
+    /**
+     * Unregisters a listener added with addListener
+     *
+     * @param listener the listener to unregister
+     */
+    public void removeListener(MutationListener listener) {
+        if (dispatcher != null) {
+            dispatcher.remove(listener);
+        }
+    }
+
+    /**
+     * Helper method to tell the listeners about a member added to the list.
+     * If a listener refuses the change, the member is taken off the list again
+     *
+     * @param index  the index the member was added at
+     * @param member the member added
+     */
+    private void notifyAdded(int index, Member member) {
+        if (dispatcher != null) {
+            member.setListener(dispatcher);
+            try {
+                dispatcher.memberAdded(this, member);
+            } catch (RuntimeException e) {
+                member.setListener(null);
+                removeAt(index);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Helper method to tell the listeners about a member removed from the list.
+     * If a listener refuses the change, the member is put back where it was
+     *
+     * @param index  the index the member was removed from
+     * @param member the member removed
+     */
+    private void notifyRemoved(int index, Member member) {
+        if (dispatcher != null) {
+            MutationListener listener = member.getListener();
+            if (listener == dispatcher) {
+                member.setListener(null);
+            }
+            try {
+                dispatcher.memberRemoved(this, member);
+            } catch (RuntimeException e) {
+                member.setListener(listener);
+                insertAt(index, member);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Helper method to insert a member at an index, shifting the members after it
+     * and keeping the profile index and sorted views up to date. Listeners are not told
+     *
+     * @param index  the index to insert the member at
+     * @param member the member to insert
+     */
+    private void insertAt(int index, Member member) {
+        if (size == members.length) {
+            grow(size + 1);
+        }
+        for (int i = size; i > index; i--) {
+            members[i] = members[i - 1];
+            profileIndex.put(members[i].getProfile(), i);
+        }
+        members[index] = member;
+        profileIndex.put(member.getProfile(), index);
+        size++;
+        addToViews(member);
     }
 
     /**
-     * Helper method to increase the capacity of the members list by 4
+     * Helper method to remove the member at an index, shifting the members after it
+     * and keeping the profile index and sorted views up to date. Listeners are not told
+     *
+     * @param index the index of the member to remove
+     * @return the member removed
      */
-    private void grow() {
-        Member[] growMember = new Member[members.length + GROW_CAPACITY];
-        for (int i = 0; i < members.length; i++) {
-            growMember[i] = members[i];
+    private Member removeAt(int index) {
+        Member removed = members[index];
+        profileIndex.remove(removed.getProfile());
+        removeFromViews(removed);
+        for (int i = index; i < size - 1; i++) {
+            members[i] = members[i + 1];
+            profileIndex.put(members[i].getProfile(), i);
         }
-        members = growMember;
+        members[size - 1] = null;
+        size--;
+        return removed;
     }
 
     /**
@@ -85,13 +284,7 @@ public class MemberList {
      * @return true if member is in the list; false otherwise
      */
     public boolean contains(Member member) {
-        for (int i = 0; i < size; i++) {
-            if (members[i] != null && members[i].getProfile().equals(member.getProfile())) {
-                return true;
-            }
-        }
-        return false;
-
+        return profileIndex.containsKey(member.getProfile());
     }
 
     /**
@@ -101,27 +294,19 @@ public class MemberList {
      * @return true if profile of the member is in the list; false otherwise
      */
     public boolean containsProfile(Profile profile) {
-        for (Member member : this.members) {
-            if (member != null && member.getProfile().equals(profile)) {
-                return true;
-            }
-        }
-        return false;
+        return profileIndex.containsKey(profile);
     }
 
     /**
      * Retrieves the member from the list when given just a profile
      *
      * @param profile the profile of the member to be found
-     * @return the Member needed to be retrieved from a given profile
+     * @return the Member needed to be retrieved from a given profile; null if not in the list
      */
     public Member getMemberFromProfile(Profile profile) {
-        int memberIndex = NOT_FOUND;
-        for (int i = 0; i < members.length; i++) {
-            if (members[i] != null && members[i].getProfile().equals(profile)) {
-                memberIndex = i;
-                break;
-            }
+        int memberIndex = findProfile(profile);
+        if (memberIndex == NOT_FOUND) {
+            return null;
         }
         return members[memberIndex];
     }
@@ -131,148 +316,214 @@ public class MemberList {
      *
      * @param member the member to add
      * @return true if the member is new and is added; false if member already exists
+     * @throws RuntimeException when a listener refuses the change; the member is not added
      */
     public boolean add(Member member) {
         if (contains(member)) {
             return false;
         }
-        if (size == members.length) {
-            grow();
+        insertAt(size, member);
+        notifyAdded(size - 1, member);
+        return true;
+    }
+
+    /**
+     * Returns the index of a member in the list
+     *
+     * @param member the member to find
+     * @return the index of the member with the same profile; -1 if not in the list
+     */
+    int indexOf(Member member) {
+        return find(member);
+    }
+
+    /**
+     * Inserts a new member at an index of the list, shifting the members after it,
+     * to put back a member removed from that index
+     *
+     * @param index  the index to insert the member at, from 0 to the size of the list
+     * @param member the member to insert
+     * @return true if the member is new and is inserted; false if member already exists
+     * @throws RuntimeException when a listener refuses the change; the member is not inserted
+     */
+    boolean insert(int index, Member member) {
+        if (contains(member)) {
+            return false;
         }
-        members[size] = member;
-        size++;
+        insertAt(index, member);
+        notifyAdded(index, member);
         return true;
     }
 
+    /**
+     * Adds a batch of members to the list of members in one pass.
+     * The list is sized once for the whole batch; members whose profile is already
+     * in the list, or appears earlier in the batch, are skipped
+     *
+     * @param newMembers the array holding the members to add
+     * @param count      the number of members to take from the start of the array
+     * @return the number of members that were added
+     * @throws RuntimeException when a listener refuses a member; the members before it stay added
+     */
+    public int addAll(Member[] newMembers, int count) {
+        ensureCapacity(size + count);
+        int added = 0;
+        for (int i = 0; i < count; i++) {
+            Member member = newMembers[i];
+            if (profileIndex.putIfAbsent(member.getProfile(), size) == null) {
+                members[size] = member;
+                size++;
+                added++;
+                addToViews(member);
+                notifyAdded(size - 1, member);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds all the members of another list to this list of members in one pass
+     *
+     * @param other the list holding the members to add
+     * @return the number of members that were added
+     */
+    public int addAll(MemberList other) {
+        return addAll(other.members, other.size);
+    }
+
     /**
      * Removes a member from the list of members.
      * Maintains the relative order of the events in the array after the deletion
      *
      * @param member the member to remove
      * @return true if the member is new and is removed; false if member already exists
+     * @throws RuntimeException when a listener refuses the change; the member is put back
      */
     public boolean remove(Member member) {
         int memberIndex = find(member);
         if (memberIndex == NOT_FOUND) {
             return false;
         }
-        for (int i = memberIndex; i < size - 1; i++) {
-            members[i] = members[i + 1];
-        }
-        members[size - 1] = null;
-        size--;
+        Member removed = removeAt(memberIndex);
+        notifyRemoved(memberIndex, removed);
         return true;
 
     }
 
     /**
      * Loads members from a text file into the list of members.
+     * The file is memory-mapped and parsed by MemberFileLoader; lines that cannot be
+     * parsed are skipped and reported in the result rather than stopping the load
      *
      * @param file The text file from which to load the members.
+     * @return the members parsed from the file and the errors for the rejected lines
      * @throws IOException When an I/O error occurs when trying to access/read the file.
      */
-    public void load(File file) throws IOException {
-        Scanner scanner = new Scanner(file);
-        String inputStr;
-        while (scanner.hasNextLine()) {
-            inputStr = scanner.nextLine();
-            if (inputStr.isEmpty()) {
-                inputStr = scanner.nextLine();
-            }
-            String[] strSplit = inputStr.split("\\s");
-
-            String memberType = strSplit[MEMBER_TYPE_INDEX];
-            String firstName = strSplit[FIRST_NAME_INDEX];
-            String lastName = strSplit[LAST_NAME_INDEX];
-            Date dob = new Date(strSplit[DOB_INDEX]);
-            Date expire = new Date(strSplit[EXPIRE_INDEX]);
-            Location homeStudio = Location.valueOf(strSplit[HOME_STUDIO_INDEX].toUpperCase());
-
-            Member member;
-            Profile memberProfile = new Profile(firstName, lastName, dob);
-            if (memberType.equals("B")) {
-                member = new Basic(memberProfile, expire, homeStudio, BASIC_INITIAL_CLASSES);
-                add(member);
-            }
-            if (memberType.equals("F")) {
-                member = new Family(memberProfile, expire, homeStudio, true);
-                add(member);
-            }
-            if (memberType.equals("P")) {
-                member = new Premium(memberProfile, expire, homeStudio, PREMIUM_GUEST_PASS_LIMIT);
-                add(member);
-            }
-        }
-        scanner.close();
+    public LoadResult load(File file) throws IOException {
+        LoadResult result = MemberFileLoader.load(file);
+        addAll(result.getMembers(), result.getNumMembers());
+        return result;
     }
 
     /**
-     * Displays all the members in the list sorted by county and then zip code.
-     * Uses insertion sort logic to order the members
+     * Loads members from a text file into the list of members, parsing the file on all cores.
+     * The members are added in file order, so the first line with a given profile wins
+     * just as it does with load(File)
+     *
+     * @param file The text file from which to load the members.
+     * @return the members parsed from the file and the errors for the rejected lines
+     * @throws IOException When an I/O error occurs when trying to access/read the file.
      */
-    public void printByCounty() {
-        for (int i = 1; i < size; i++) {
-            Member key = members[i];
-            int j = i - 1;
+    public LoadResult loadParallel(File file) throws IOException {
+        LoadResult result = MemberFileLoader.loadParallel(file);
+        addAll(result.getMembers(), result.getNumMembers());
+        return result;
+    }
 
-            while (j >= 0 && ((members[j].getHomeStudio().getCounty().compareTo(key.getHomeStudio().getCounty()) > 0)
-                    || (members[j].getHomeStudio().getCounty().compareTo(key.getHomeStudio().getCounty()) == 0
-                    && members[j].getHomeStudio().getZipCode().compareTo(key.getHomeStudio().getZipCode()) > 0))) {
+    /**
+     * Loads members from a text file into the list of members, parsing the file on all cores
+     * and reporting each chunk as it is parsed. If the progress callback throws,
+     * the load stops and no members are added
+     *
+     * @param file     The text file from which to load the members.
+     * @param progress receives the size of each chunk parsed, from several threads
+     * @return the members parsed from the file and the errors for the rejected lines
+     * @throws IOException When an I/O error occurs when trying to access/read the file.
+     */
+    public LoadResult loadParallel(File file, LoadProgress progress) throws IOException {
+        LoadResult result = MemberFileLoader.loadParallel(file, progress);
+        addAll(result.getMembers(), result.getNumMembers());
+        return result;
+    }
 
-                members[j + 1] = members[j];
-                j -= 1;
+    /**
+     * Visits all the members in the list sorted by county and then zip code.
+     * Members of the same studio are visited in the order they were added.
+     * Walks a view kept ordered on add and remove, so the list itself is not reordered
+     *
+     * @param action the action to perform on each member
+     */
+    public void forEachByCounty(Consumer<? super Member> action) {
+        if (byStudio == null) {
+            byStudio = new EnumMap<>(Location.class);
+            for (Location location : Location.values()) {
+                byStudio.put(location, new LinkedHashSet<>());
+            }
+            for (int i = 0; i < size; i++) {
+                byStudio.get(members[i].getHomeStudio()).add(members[i]);
             }
-            members[j + 1] = key;
         }
+        for (Location location : COUNTY_ORDER) {
+            byStudio.get(location).forEach(action);
+        }
+    }
 
-        System.out.println("-list of members sorted by county then zipcode-");
-        for (Member member : members) {
-            if (member != null) {
-                System.out.println(member);
+    /**
+     * Visits all the members in the list sorted by their profiles.
+     * Walks a view kept ordered on add and remove, so the list itself is not reordered
+     *
+     * @param action the action to perform on each member
+     */
+    public void forEachByProfile(Consumer<? super Member> action) {
+        if (byProfile == null) {
+            byProfile = new TreeSet<>();
+            for (int i = 0; i < size; i++) {
+                byProfile.add(members[i]);
             }
         }
-        System.out.println("-end of list-\n");
+        byProfile.forEach(action);
+    }
 
+    /**
+     * Displays all the members in the list sorted by county and then zip code.
+     */
+    public void printByCounty() {
+        try {
+            new ReportWriter(System.out).writeByCounty(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
      * Displays all the members in the list sorted by their profiles.
-     * Uses insertion sort logic to order the members
      */
     public void printByMember() {
-        for (int i = 1; i < size; i++) {
-            Member key = members[i];
-            int j = i - 1;
-
-            while (j >= 0 && members[j].compareTo(key) == 1) {
-                members[j + 1] = members[j];
-                j -= 1;
-            }
-            members[j + 1] = key;
-        }
-
-        System.out.println("\n-list of members sorted by member profiles-");
-
-        for (Member member : members) {
-            if (member != null) {
-                System.out.println(member);
-            }
+        try {
+            new ReportWriter(System.out).writeByMember(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        System.out.println("-end of list-\n");
-
     }
 
     /**
      * Displays all the members with their next bill due amounts.
      */
     public void printFees() {
-
-        System.out.println("\n-list of members with next dues-");
-        for (Member member : members) {
-            if (member != null) {
-                System.out.println(member + " [next due: $" + String.format("%.2f", member.bill()) + "]");
-            }
+        try {
+            new ReportWriter(System.out).writeFees(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        System.out.println("-end of list-\n\n");
     }
 }
@@ -0,0 +1,489 @@
+package fitnessclub;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+/**
+ * Stores members column by column in parallel primitive arrays instead of one object graph
+ * per member. Dates are kept as epoch days, the home studio as its Location ordinal,
+ * and the Basic classes attended, Family guest pass and Premium guest passes share one
+ * counter column. Name strings are shared between members with the same name.
+ * A row takes 22 bytes of columns with compressed references (two name references,
+ * two dates, the counter, the studio and the type), plus the slack left by growing
+ * and the shared name strings.
+ * StoredMember gives a Member view over a single row, which formats, compares and bills
+ * straight from the columns.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class MemberStore {
+    public static final byte BASIC = 0;
+    public static final byte FAMILY = 1;
+    public static final byte PREMIUM = 2;
+    public static final int NUM_TYPES = 3;
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int GROW_FACTOR = 2;
+    private static final Location[] LOCATIONS = Location.values();
+
+    private String[] fnames;
+    private String[] lnames;
+    private int[] dobs; //epoch days
+    private int[] expires; //epoch days
+    private byte[] studios; //Location ordinals
+    private byte[] types; //BASIC, FAMILY or PREMIUM
+    private int[] counters; //classes attended, guest pass 0/1, or guest passes left
+    private int size;
+    private HashMap<String, String> names; //one shared instance per distinct name
+
+    /**
+     * Default constructor/no-argument constructor
+     */
+    public MemberStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Parameterized constructor requires 1 parameter to create a MemberStore
+     * sized up front for an expected number of members
+     *
+     * @param initialCapacity the number of members the store can hold before growing
+     */
+    public MemberStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, INITIAL_CAPACITY);
+        fnames = new String[capacity];
+        lnames = new String[capacity];
+        dobs = new int[capacity];
+        expires = new int[capacity];
+        studios = new byte[capacity];
+        types = new byte[capacity];
+        counters = new int[capacity];
+        size = 0;
+        names = new HashMap<>();
+    }
+
+    /**
+     * Creates a store holding the members of a list, in the same order
+     *
+     * @param list the list of members to copy
+     * @return a new store with one row per member
+     */
+    public static MemberStore of(MemberList list) {
+        MemberStore store = new MemberStore(list.getSize());
+        Member[] members = list.getMembers();
+        for (int i = 0; i < list.getSize(); i++) {
+            store.add(members[i]);
+        }
+        return store;
+    }
+
+    /**
+     * A getter method returns the number of members in the store
+     *
+     * @return the number of members
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Helper method to grow every column to at least the given capacity
+     *
+     * @param minCapacity the minimum number of rows the store must be able to hold
+     */
+    private void grow(int minCapacity) {
+        int capacity = Math.max(fnames.length * GROW_FACTOR, minCapacity);
+        fnames = Arrays.copyOf(fnames, capacity);
+        lnames = Arrays.copyOf(lnames, capacity);
+        dobs = Arrays.copyOf(dobs, capacity);
+        expires = Arrays.copyOf(expires, capacity);
+        studios = Arrays.copyOf(studios, capacity);
+        types = Arrays.copyOf(types, capacity);
+        counters = Arrays.copyOf(counters, capacity);
+    }
+
+    /**
+     * Helper method to return the shared instance of a name
+     *
+     * @param name the name to share
+     * @return the instance of the name stored for every member with that name
+     */
+    private String share(String name) {
+        String shared = names.putIfAbsent(name, name);
+        if (shared == null) {
+            return name;
+        }
+        return shared;
+    }
+
+    /**
+     * Appends a member as a new row. Does not check for duplicates;
+     * the store is meant to be filled from a MemberList, which already has none
+     *
+     * @param member the Basic, Family, or Premium member, or a view over a row of a store
+     * @return the row index of the member
+     * @throws IllegalArgumentException when the member is of any other type
+     */
+    public int add(Member member) {
+        if (member instanceof StoredMember stored) {
+            return addRow(stored.getStore(), stored.getIndex());
+        }
+        byte type = typeOf(member);
+        if (size == fnames.length) {
+            grow(size + 1);
+        }
+        Profile profile = member.getProfile();
+        fnames[size] = share(profile.getFname());
+        lnames[size] = share(profile.getLname());
+        dobs[size] = profile.getDob().toEpochDay();
+        expires[size] = member.getExpire().toEpochDay();
+        studios[size] = (byte) member.getHomeStudio().ordinal();
+        types[size] = type;
+        counters[size] = counterOf(member);
+        return size++;
+    }
+
+    /**
+     * Helper method to append a copy of a row of a store, column by column
+     *
+     * @param from  the store holding the row
+     * @param index the row index in that store
+     * @return the row index of the copy
+     */
+    private int addRow(MemberStore from, int index) {
+        if (size == fnames.length) {
+            grow(size + 1);
+        }
+        fnames[size] = share(from.fnames[index]);
+        lnames[size] = share(from.lnames[index]);
+        dobs[size] = from.dobs[index];
+        expires[size] = from.expires[index];
+        studios[size] = from.studios[index];
+        types[size] = from.types[index];
+        counters[size] = from.counters[index];
+        return size++;
+    }
+
+    /**
+     * Returns the membership type code of a member
+     *
+     * @param member the Basic, Family, or Premium member, or a view over a row of a store
+     * @return BASIC, FAMILY or PREMIUM
+     * @throws IllegalArgumentException when the member is of any other type
+     */
+    public static byte typeOf(Member member) {
+        if (member instanceof Basic) {
+            return BASIC;
+        }
+        if (member instanceof Family) {
+            return FAMILY;
+        }
+        if (member instanceof Premium) {
+            return PREMIUM;
+        }
+        if (member instanceof StoredMember stored) {
+            return stored.getStore().getType(stored.getIndex());
+        }
+        throw new IllegalArgumentException("unknown membership type: " + member.getClass().getName());
+    }
+
+    /**
+     * Returns the counter column value of a member: classes attended for Basic,
+     * 1 or 0 for whether a Family guest pass is left, guest passes left for Premium
+     *
+     * @param member the Basic, Family, or Premium member, or a view over a row of a store
+     * @return the counter of the member
+     * @throws IllegalArgumentException when the member is of any other type
+     */
+    public static int counterOf(Member member) {
+        if (member instanceof Basic basic) {
+            return basic.getNumClasses();
+        }
+        if (member instanceof Family family) {
+            return family.isGuest() ? 1 : 0;
+        }
+        if (member instanceof Premium premium) {
+            return premium.getGuestPass();
+        }
+        if (member instanceof StoredMember stored) {
+            return stored.getStore().getCounter(stored.getIndex());
+        }
+        throw new IllegalArgumentException("unknown membership type: " + member.getClass().getName());
+    }
+
+    /**
+     * Returns a flyweight Member view over a row. The view reads the columns directly, and
+     * its guest pass and class counters write them; it can be moved to other rows with moveTo
+     *
+     * @param index the row index of the member
+     * @return a view of the member at that row
+     */
+    public StoredMember get(int index) {
+        return new StoredMember(this, index);
+    }
+
+    /**
+     * Visits every row in order through one view, moved from row to row, so a scan allocates
+     * nothing per member. The view is only valid during the call for its row
+     *
+     * @param action the action to perform on each row
+     */
+    public void forEach(Consumer<? super StoredMember> action) {
+        StoredMember view = new StoredMember(this, 0);
+        for (int i = 0; i < size; i++) {
+            view.moveTo(i);
+            action.accept(view);
+        }
+    }
+
+    /**
+     * Copies a row out into a standalone Basic, Family, or Premium object
+     *
+     * @param index the row index of the member
+     * @return a new member object with the values of the row
+     */
+    public Member toMember(int index) {
+        Profile profile = getProfile(index);
+        Date expire = Date.ofEpochDay(expires[index]);
+        Location homeStudio = LOCATIONS[studios[index]];
+        if (types[index] == BASIC) {
+            return new Basic(profile, expire, homeStudio, counters[index]);
+        }
+        if (types[index] == FAMILY) {
+            return new Family(profile, expire, homeStudio, counters[index] != 0);
+        }
+        return new Premium(profile, expire, homeStudio, counters[index]);
+    }
+
+    /**
+     * Returns the profile of the member at a row
+     *
+     * @param index the row index of the member
+     * @return a new profile with the names and date of birth of the row
+     */
+    public Profile getProfile(int index) {
+        return new Profile(fnames[index], lnames[index], Date.ofEpochDay(dobs[index]));
+    }
+
+    /**
+     * Compares the profile of the member at a row with the profile of another member,
+     * the same as Profile.compareTo, reading the names and date of birth from the columns
+     *
+     * @param index the row index of the member
+     * @param other the member to compare with
+     * @return a negative number, zero, or a positive number depending on if the row's profile is
+     * less than, equal to, or greater than the other profile
+     */
+    public int compareProfile(int index, Member other) {
+        String fname;
+        String lname;
+        int dob;
+        if (other instanceof StoredMember stored) {
+            MemberStore store = stored.getStore();
+            fname = store.fnames[stored.getIndex()];
+            lname = store.lnames[stored.getIndex()];
+            dob = store.dobs[stored.getIndex()];
+        } else {
+            Profile profile = other.getProfile();
+            fname = profile.getFname();
+            lname = profile.getLname();
+            dob = profile.getDob().toEpochDay();
+        }
+        int byLname = lnames[index].compareToIgnoreCase(lname);
+        if (byLname != 0) {
+            return byLname;
+        }
+        int byFname = fnames[index].compareTo(fname);
+        if (byFname != 0) {
+            return byFname;
+        }
+        return Integer.compare(dobs[index], dob);
+    }
+
+    /**
+     * Determines if the member at a row has a profile equal to another member's,
+     * the same as Profile.equals, reading the names and date of birth from the columns
+     *
+     * @param index the row index of the member
+     * @param other the member to compare with
+     * @return true if the names are equal ignoring case and the dates of birth are equal
+     */
+    public boolean equalsProfile(int index, Member other) {
+        if (other instanceof StoredMember stored) {
+            MemberStore store = stored.getStore();
+            int row = stored.getIndex();
+            return dobs[index] == store.dobs[row] && lnames[index].equalsIgnoreCase(store.lnames[row])
+                    && fnames[index].equalsIgnoreCase(store.fnames[row]);
+        }
+        Profile profile = other.getProfile();
+        return dobs[index] == profile.getDob().toEpochDay() && lnames[index].equalsIgnoreCase(profile.getLname())
+                && fnames[index].equalsIgnoreCase(profile.getFname());
+    }
+
+    /**
+     * Appends the member at a row in the same format as the Basic, Family or Premium object
+     * for the row, reading the columns directly
+     *
+     * @param index    the row index of the member
+     * @param out      the builder to append to
+     * @param epochDay the day to check the expiration against, usually today
+     * @return the builder
+     */
+    public StringBuilder appendTo(int index, StringBuilder out, int epochDay) {
+        boolean expired = isExpired(index, epochDay);
+        out.append(fnames[index]).append(':').append(lnames[index]).append(':');
+        Date.appendEpochDay(out, dobs[index]).append(", ")
+                .append(expired ? "Membership expired " : "Membership expires ");
+        Date.appendEpochDay(out, expires[index]).append(", Home Studio: ").append(LOCATIONS[studios[index]]);
+        if (types[index] == BASIC) {
+            return out.append(", (Basic) number of classes attended: ").append(counters[index]);
+        }
+        out.append(types[index] == FAMILY ? ", (Family) guest-pass remaining: " : ", (Premium) guest-pass remaining: ");
+        if (expired) {
+            return out.append("not eligible");
+        }
+        return out.append(counters[index]);
+    }
+
+    /**
+     * Returns the expiration date of the member at a row, as an epoch day
+     *
+     * @param index the row index of the member
+     * @return the number of days from 1/1/1970 to the expiration date
+     */
+    public int getExpireEpochDay(int index) {
+        return expires[index];
+    }
+
+    /**
+     * Returns the home studio of the member at a row
+     *
+     * @param index the row index of the member
+     * @return the home studio location
+     */
+    public Location getHomeStudio(int index) {
+        return LOCATIONS[studios[index]];
+    }
+
+    /**
+     * Returns the membership type of the member at a row
+     *
+     * @param index the row index of the member
+     * @return BASIC, FAMILY or PREMIUM
+     */
+    public byte getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * Returns the counter of the member at a row: classes attended for Basic,
+     * 1 or 0 for whether a Family guest pass is left, guest passes left for Premium
+     *
+     * @param index the row index of the member
+     * @return the counter of the row
+     */
+    public int getCounter(int index) {
+        return counters[index];
+    }
+
+    /**
+     * Increments the classes attended by a Basic member
+     *
+     * @param index the row index of the member
+     */
+    public void addClass(int index) {
+        counters[index]++;
+    }
+
+    /**
+     * Decrements the guest passes left for a Premium member
+     *
+     * @param index the row index of the member
+     */
+    public void useGuestPass(int index) {
+        counters[index]--;
+    }
+
+    /**
+     * Increments the guest passes left for a Premium member
+     *
+     * @param index the row index of the member
+     */
+    public void addGuestPass(int index) {
+        counters[index]++;
+    }
+
+    /**
+     * Sets whether a Family member has a guest pass left
+     *
+     * @param index the row index of the member
+     * @param guest true if a guest pass is available; false otherwise
+     */
+    public void setGuest(int index, boolean guest) {
+        counters[index] = guest ? 1 : 0;
+    }
+
+    /**
+     * Determines if the membership at a row expired before a given day
+     *
+     * @param index    the row index of the member
+     * @param epochDay the day to check against, usually today
+     * @return true if the membership is expired on that day; false otherwise
+     */
+    public boolean isExpired(int index, int epochDay) {
+        return expires[index] < epochDay;
+    }
+
+    /**
+     * Calculates the next due bill amount of the member at a row
+     *
+     * @param index the row index of the member
+     * @return the bill amount for the membership type of the row
+     */
+    public double bill(int index) {
+        if (types[index] == BASIC) {
+            return Basic.billFor(counters[index]);
+        }
+        if (types[index] == FAMILY) {
+            return Family.billFor();
+        }
+        return Premium.billFor();
+    }
+
+    /**
+     * Calculates the sum of the next due bills of all members, scanning only the type
+     * and counter columns
+     *
+     * @return the total amount due
+     */
+    public double totalDues() {
+        double familyDue = Family.billFor();
+        double premiumDue = Premium.billFor();
+        double total = 0.0;
+        for (int i = 0; i < size; i++) {
+            byte type = types[i];
+            if (type == BASIC) {
+                total += Basic.billFor(counters[i]);
+            } else if (type == FAMILY) {
+                total += familyDue;
+            } else {
+                total += premiumDue;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Displays all the members with their next bill due amounts,
+     * in the same format as MemberList.printFees, walking the columns row by row
+     */
+    public void printFees() {
+        try {
+            new ReportWriter(System.out).writeFees(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package fitnessclub;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.ObservableListBase;
+import javafx.concurrent.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * The rows of the member table: a filtered and sorted view of a MemberList for a TableView.
+ * The rows are held in one array of member references, read by index as the table scrolls, so
+ * the TableView only builds cells for the rows on screen and no object is created per member.
+ * Filtering and sorting run as a Task on a background executor over a copy of the list taken
+ * on the FX thread; the finished rows are swapped in on the FX thread in a single change.
+ * A newer refresh cancels one still running, so typing in the filter stays responsive.
+ * Small batches of changed members are applied in place with applyChanges, as the removed,
+ * added and updated rows only, so the table does not redraw every row after each change.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class MemberTableModel extends ObservableListBase<Member> {
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+    private static final int MAX_CHANGES = 1024; //larger batches are applied with a full refresh
+    private static final int GROW_FACTOR = 2;
+
+    private final Executor executor;
+    private final ReadOnlyBooleanWrapper busy;
+    private Member[] rows; //the first numRows entries are shown
+    private int numRows;
+    private MemberList source;
+    private String[] filterWords;
+    private Comparator<? super Member> comparator; //null for list order
+    private Task<Member[]> pending;
+    private IdentityHashMap<Member, Integer> rowIndex; //the row of each member shown; null until needed
+    private final Set<Member> deferred; //changes made while a refresh is running
+
+    /**
+     * Parameterized constructor requires 1 parameter to create an empty MemberTableModel
+     *
+     * @param executor runs the filtering and sorting off the FX thread
+     */
+    public MemberTableModel(Executor executor) {
+        this.executor = executor;
+        busy = new ReadOnlyBooleanWrapper(false);
+        rows = new Member[0];
+        filterWords = new String[0];
+        deferred = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Returns the member shown in a row
+     *
+     * @param index the row index
+     * @return the member in that row
+     */
+    @Override
+    public Member get(int index) {
+        if (index < 0 || index >= numRows) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return rows[index];
+    }
+
+    /**
+     * Returns the number of rows
+     *
+     * @return the number of members shown
+     */
+    @Override
+    public int size() {
+        return numRows;
+    }
+
+    /**
+     * Returns whether a filter or sort is running in the background
+     *
+     * @return a property that is true while the rows are being recomputed
+     */
+    public ReadOnlyBooleanProperty busyProperty() {
+        return busy.getReadOnlyProperty();
+    }
+
+    /**
+     * Shows the members of a list, recomputing the rows in the background
+     *
+     * @param source the list to show; null to show nothing
+     */
+    public void setSource(MemberList source) {
+        this.source = source;
+        refresh();
+    }
+
+    /**
+     * Shows only the members whose first or last name starts with each word of a filter,
+     * ignoring case
+     *
+     * @param filter the words to match; blank to show every member
+     */
+    public void setFilter(String filter) {
+        String trimmed = filter == null ? "" : filter.trim();
+        filterWords = trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+        refresh();
+    }
+
+    /**
+     * Sorts the rows with a comparator
+     *
+     * @param comparator the order of the rows; null to keep the order of the list
+     */
+    public void setComparator(Comparator<? super Member> comparator) {
+        this.comparator = comparator;
+        refresh();
+    }
+
+    /**
+     * Recomputes the rows from the current contents of the list, for example after members
+     * were added or removed. Must be called on the FX thread
+     */
+    public void refresh() {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        deferred.clear();
+        Member[] snapshot = source == null ? new Member[0] : Arrays.copyOf(source.getMembers(), source.getSize());
+        String[] words = filterWords;
+        Comparator<? super Member> order = comparator;
+        Task<Member[]> task = new Task<>() {
+            @Override
+            protected Member[] call() {
+                Member[] filtered = filter(snapshot, words, this);
+                if (order != null && !isCancelled()) {
+                    Arrays.parallelSort(filtered, order);
+                }
+                return filtered;
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (pending == task) {
+                pending = null;
+                replaceRows(task.getValue());
+                busy.set(false);
+                applyDeferred();
+            }
+        });
+        task.setOnFailed(event -> finishCancelled(task));
+        task.setOnCancelled(event -> finishCancelled(task));
+        pending = task;
+        busy.set(true);
+        executor.execute(task);
+    }
+
+    /**
+     * Helper method to stop waiting for a refresh that failed or was cancelled from outside,
+     * such as by BackgroundTasks.cancelAll, keeping the current rows
+     *
+     * @param task the refresh that ended
+     */
+    private void finishCancelled(Task<Member[]> task) {
+        if (pending == task) {
+            pending = null;
+            busy.set(false);
+            applyDeferred();
+        }
+    }
+
+    /**
+     * Brings the rows of some members up to date after they were added to or removed from
+     * the list, or their counters changed. A member is removed from the rows if it left the list,
+     * added at its place in the order if it joined it, moved if the change put it out of order,
+     * and otherwise updated where it is; the table is told about those rows only.
+     * Changes made while a refresh is running are applied once it finishes, and a batch of more
+     * than MAX_CHANGES members is applied with a refresh instead. Must be called on the FX thread
+     *
+     * @param changed the members that changed; each member at most once
+     */
+    public void applyChanges(Collection<? extends Member> changed) {
+        if (changed.isEmpty() || source == null) {
+            return;
+        }
+        if (pending != null) {
+            deferred.addAll(changed);
+            return;
+        }
+        if (changed.size() > MAX_CHANGES) {
+            refresh();
+            return;
+        }
+        if (rowIndex == null) {
+            rowIndex = indexRows();
+        }
+        int[] changedRows = new int[changed.size()];
+        int numChanged = 0;
+        ArrayList<Member> inserted = new ArrayList<>();
+        for (Member member : changed) {
+            int row = rowOf(member);
+            if (row >= 0) {
+                changedRows[numChanged++] = row;
+            } else if (isShown(member)) {
+                inserted.add(member);
+            }
+        }
+        changedRows = Arrays.copyOf(changedRows, numChanged);
+        Arrays.sort(changedRows);
+        Member[] changedMembers = new Member[numChanged];
+        boolean[] stays = new boolean[numChanged];
+        int firstRemoved = numRows;
+        for (int i = 0; i < numChanged; i++) {
+            Member member = rows[changedRows[i]];
+            changedMembers[i] = member;
+            boolean shown = isShown(member);
+            stays[i] = shown && isInOrder(changedRows, stays, i);
+            if (!stays[i]) {
+                firstRemoved = Math.min(firstRemoved, changedRows[i]);
+                if (shown) {
+                    inserted.add(member);
+                }
+            }
+        }
+        if (firstRemoved == numRows && inserted.isEmpty()) {
+            beginChange();
+            for (int row : changedRows) {
+                nextUpdate(row);
+            }
+            endChange();
+            return;
+        }
+        if (comparator != null) {
+            inserted.sort(comparator);
+        }
+        int[] insertedRows = new int[inserted.size()];
+        merge(changedRows, changedMembers, stays, inserted, insertedRows, firstShifted(firstRemoved, inserted));
+        beginChange();
+        for (int i = numChanged - 1; i >= 0; i--) {
+            if (!stays[i]) {
+                nextRemove(changedRows[i], changedMembers[i]);
+            }
+        }
+        for (int row : insertedRows) {
+            nextAdd(row, row + 1);
+        }
+        for (int i = 0; i < numChanged; i++) {
+            if (stays[i]) {
+                nextUpdate(rowOf(changedMembers[i]));
+            }
+        }
+        endChange();
+    }
+
+    /**
+     * Helper method to apply the changes made while a refresh was running
+     */
+    private void applyDeferred() {
+        if (!deferred.isEmpty()) {
+            ArrayList<Member> changed = new ArrayList<>(deferred);
+            deferred.clear();
+            applyChanges(changed);
+        }
+    }
+
+    /**
+     * Helper method to check if a member is in the list and matches the filter
+     *
+     * @param member the member to check
+     * @return true if the member belongs in the rows; false otherwise
+     */
+    private boolean isShown(Member member) {
+        return source.getMemberFromProfile(member.getProfile()) == member
+                && matches(member.getProfile(), filterWords);
+    }
+
+    /**
+     * Helper method to check if a changed row can stay where it is. It must not sort before
+     * the nearest row above it that is kept, nor after the nearest unchanged row below it,
+     * so the rows kept stay sorted whichever of the other changed rows move
+     *
+     * @param changedRows the changed rows, in ascending order
+     * @param stays       whether each changed row above this one stays
+     * @param index       the index of the row to check in changedRows
+     * @return true if the row is in order; false if it must move
+     */
+    private boolean isInOrder(int[] changedRows, boolean[] stays, int index) {
+        if (comparator == null) {
+            return true;
+        }
+        int row = changedRows[index];
+        int above = row - 1;
+        for (int i = index - 1; i >= 0 && changedRows[i] == above && !stays[i]; i--) {
+            above--;
+        }
+        int below = row + 1;
+        for (int i = index + 1; i < changedRows.length && changedRows[i] == below; i++) {
+            below++;
+        }
+        return (above < 0 || comparator.compare(rows[above], rows[row]) <= 0)
+                && (below >= numRows || comparator.compare(rows[row], rows[below]) <= 0);
+    }
+
+    /**
+     * Helper method to find the first row that a batch of changes moves. The rows above it
+     * are unchanged or stay, so they keep their places and their entries in the row index
+     *
+     * @param firstRemoved the first row removed or moved; numRows if none
+     * @param inserted     the members to insert, in order
+     * @return the first row whose member changes
+     */
+    private int firstShifted(int firstRemoved, ArrayList<Member> inserted) {
+        if (inserted.isEmpty() || firstRemoved == 0) {
+            return firstRemoved;
+        }
+        if (comparator == null) {
+            return Math.min(firstRemoved, numRows);
+        }
+        Member smallest = inserted.get(0);
+        int low = 0;
+        int high = firstRemoved;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparator.compare(rows[middle], smallest) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Helper method to rebuild the rows from a given row on, in place: drops the rows that are
+     * not kept, inserts the new ones in order, and updates the row index for the shifted rows only.
+     * Without a comparator the inserted rows go at the end, as new members join the list there
+     *
+     * @param changedRows    the changed rows, in ascending order
+     * @param changedMembers the member in each changed row
+     * @param stays          whether each changed row is kept
+     * @param inserted       the members to insert, in order
+     * @param insertedRows   filled with the new row of each inserted member
+     * @param start          the first row that moves; rows above it are left as they are
+     */
+    private void merge(int[] changedRows, Member[] changedMembers, boolean[] stays,
+                       ArrayList<Member> inserted, int[] insertedRows, int start) {
+        Member[] tail = Arrays.copyOfRange(rows, start, numRows);
+        int numRemoved = 0;
+        for (int i = 0; i < stays.length; i++) {
+            if (!stays[i]) {
+                numRemoved++;
+                rowIndex.remove(changedMembers[i]);
+            }
+        }
+        int newNumRows = numRows - numRemoved + inserted.size();
+        if (newNumRows > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(newNumRows, rows.length * GROW_FACTOR));
+        }
+        int next = start;
+        int nextChanged = 0;
+        while (nextChanged < changedRows.length && changedRows[nextChanged] < start) {
+            nextChanged++;
+        }
+        int nextInserted = 0;
+        for (int t = 0; t < tail.length; t++) {
+            if (nextChanged < changedRows.length && changedRows[nextChanged] == start + t) {
+                if (!stays[nextChanged++]) {
+                    continue;
+                }
+            }
+            while (comparator != null && nextInserted < inserted.size()
+                    && comparator.compare(inserted.get(nextInserted), tail[t]) < 0) {
+                insertedRows[nextInserted] = next;
+                rows[next++] = inserted.get(nextInserted++);
+            }
+            rows[next++] = tail[t];
+        }
+        while (nextInserted < inserted.size()) {
+            insertedRows[nextInserted] = next;
+            rows[next++] = inserted.get(nextInserted++);
+        }
+        if (newNumRows < numRows) {
+            Arrays.fill(rows, newNumRows, numRows, null);
+        }
+        numRows = newNumRows;
+        for (int row = start; row < numRows; row++) {
+            rowIndex.put(rows[row], row);
+        }
+    }
+
+    /**
+     * Helper method to find the row of a member
+     *
+     * @param member the member to find
+     * @return the row of the member; -1 if it is not shown
+     */
+    private int rowOf(Member member) {
+        Integer row = rowIndex.get(member);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * Helper method to index the rows by member, sized to the rows shown
+     *
+     * @return the row of each member shown
+     */
+    private IdentityHashMap<Member, Integer> indexRows() {
+        IdentityHashMap<Member, Integer> index = new IdentityHashMap<>(numRows);
+        for (int row = 0; row < numRows; row++) {
+            index.put(rows[row], row);
+        }
+        return index;
+    }
+
+    /**
+     * Helper method to keep the members matching every filter word
+     *
+     * @param members the members to filter
+     * @param words   the filter words
+     * @param task    the running task, checked now and then for cancellation
+     * @return the matching members, in the same order; the array itself if there are no words
+     */
+    private static Member[] filter(Member[] members, String[] words, Task<?> task) {
+        if (words.length == 0) {
+            return members;
+        }
+        int count = 0;
+        for (int i = 0; i < members.length; i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && task.isCancelled()) {
+                return new Member[0];
+            }
+            if (matches(members[i].getProfile(), words)) {
+                members[count++] = members[i];
+            }
+        }
+        return Arrays.copyOf(members, count);
+    }
+
+    /**
+     * Helper method to check if a profile matches every filter word
+     *
+     * @param profile the profile to check
+     * @param words   the filter words
+     * @return true if each word starts the first or last name, ignoring case; false otherwise
+     */
+    private static boolean matches(Profile profile, String[] words) {
+        for (String word : words) {
+            if (!profile.getFname().regionMatches(true, 0, word, 0, word.length())
+                    && !profile.getLname().regionMatches(true, 0, word, 0, word.length())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to swap in new rows and tell the table, as one change
+     *
+     * @param newRows the rows to show
+     */
+    private void replaceRows(Member[] newRows) {
+        List<Member> oldRows = Arrays.asList(rows).subList(0, numRows);
+        rows = newRows;
+        numRows = newRows.length;
+        rowIndex = null;
+        beginChange();
+        if (!oldRows.isEmpty()) {
+            nextRemove(0, oldRows);
+        }
+        if (newRows.length > 0) {
+            nextAdd(0, newRows.length);
+        }
+        endChange();
+    }
+}
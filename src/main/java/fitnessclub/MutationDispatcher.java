@@ -0,0 +1,176 @@
+package fitnessclub;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Forwards every change it receives to each of the listeners registered with it.
+ * A MemberList or FitnessClass creates one the first time a listener is added,
+ * and the members of a list report their counter updates to the list's dispatcher.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+class MutationDispatcher implements MutationListener {
+    private final CopyOnWriteArrayList<MutationListener> listeners;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates a dispatcher with no listeners
+     */
+    MutationDispatcher() {
+        listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Registers a listener
+     *
+     * @param listener the listener to forward changes to
+     */
+    void add(MutationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Registers a listener to be called before every listener already registered
+     *
+     * @param listener the listener to forward changes to first
+     */
+    void addFirst(MutationListener listener) {
+        listeners.add(0, listener);
+    }
+
+    /**
+     * Unregisters a listener
+     *
+     * @param listener the listener to stop forwarding changes to
+     */
+    void remove(MutationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param list   the list that changed
+     * @param member the member that changed
+     */
+    @Override
+    public void memberAdded(MemberList list, Member member) {
+        for (MutationListener listener : listeners) {
+            listener.memberAdded(list, member);
+        }
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param list   the list that changed
+     * @param member the member that changed
+     */
+    @Override
+    public void memberRemoved(MemberList list, Member member) {
+        for (MutationListener listener : listeners) {
+            listener.memberRemoved(list, member);
+        }
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param fitnessClass the class that changed
+     * @param member       the member that changed
+     */
+    @Override
+    public void classMemberAdded(FitnessClass fitnessClass, Member member) {
+        for (MutationListener listener : listeners) {
+            listener.classMemberAdded(fitnessClass, member);
+        }
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param fitnessClass the class that changed
+     * @param member       the member that changed
+     */
+    @Override
+    public void classMemberRemoved(FitnessClass fitnessClass, Member member) {
+        for (MutationListener listener : listeners) {
+            listener.classMemberRemoved(fitnessClass, member);
+        }
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param fitnessClass the class that changed
+     * @param guest        the member bringing the guest
+     */
+    @Override
+    public void classGuestAdded(FitnessClass fitnessClass, Member guest) {
+        for (MutationListener listener : listeners) {
+            listener.classGuestAdded(fitnessClass, guest);
+        }
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param fitnessClass the class that changed
+     * @param guest        the member bringing the guest
+     */
+    @Override
+    public void classGuestRemoved(FitnessClass fitnessClass, Member guest) {
+        for (MutationListener listener : listeners) {
+            listener.classGuestRemoved(fitnessClass, guest);
+        }
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param member the member that changed
+     */
+    @Override
+    public void guestPassUsed(Premium member) {
+        for (MutationListener listener : listeners) {
+            listener.guestPassUsed(member);
+        }
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param member the member that changed
+     */
+    @Override
+    public void guestPassAdded(Premium member) {
+        for (MutationListener listener : listeners) {
+            listener.guestPassAdded(member);
+        }
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param member the member that changed
+     * @param guest  true if a guest pass is now available; false otherwise
+     */
+    @Override
+    public void guestSet(Family member, boolean guest) {
+        for (MutationListener listener : listeners) {
+            listener.guestSet(member, guest);
+        }
+    }
+
+    /**
+     * Forwards the change to every registered listener
+     *
+     * @param member the member that changed
+     */
+    @Override
+    public void classAttended(Basic member) {
+        for (MutationListener listener : listeners) {
+            listener.classAttended(member);
+        }
+    }
+}
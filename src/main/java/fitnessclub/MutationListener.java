@@ -0,0 +1,103 @@
+package fitnessclub;
+
+/**
+ * Receives the changes made to a member list, the enrollments of a fitness class,
+ * and the counters of the members in a list.
+ * Every method does nothing by default, so a listener only overrides the changes it needs.
+ * Methods are called on the thread making the change, after the change is applied.
+ * A listener can refuse a change by throwing a RuntimeException: the change is undone and
+ * the exception is passed on to the caller. The listeners after it are not called, and the
+ * ones before it are not told about the undo, so a listener that must be able to refuse
+ * changes, like the Journal, is registered to be called before every other listener.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public interface MutationListener {
+
+    /**
+     * Called after a member is added to a member list
+     *
+     * @param list   the list the member was added to
+     * @param member the member added
+     */
+    default void memberAdded(MemberList list, Member member) {
+    }
+
+    /**
+     * Called after a member is removed from a member list
+     *
+     * @param list   the list the member was removed from
+     * @param member the member removed
+     */
+    default void memberRemoved(MemberList list, Member member) {
+    }
+
+    /**
+     * Called after a member is enrolled in a fitness class
+     *
+     * @param fitnessClass the class the member was added to
+     * @param member       the member added
+     */
+    default void classMemberAdded(FitnessClass fitnessClass, Member member) {
+    }
+
+    /**
+     * Called after a member is dropped from a fitness class
+     *
+     * @param fitnessClass the class the member was removed from
+     * @param member       the member removed
+     */
+    default void classMemberRemoved(FitnessClass fitnessClass, Member member) {
+    }
+
+    /**
+     * Called after a member's guest is added to a fitness class
+     *
+     * @param fitnessClass the class the guest was added to
+     * @param guest        the member bringing the guest
+     */
+    default void classGuestAdded(FitnessClass fitnessClass, Member guest) {
+    }
+
+    /**
+     * Called after a member's guest is removed from a fitness class
+     *
+     * @param fitnessClass the class the guest was removed from
+     * @param guest        the member who brought the guest
+     */
+    default void classGuestRemoved(FitnessClass fitnessClass, Member guest) {
+    }
+
+    /**
+     * Called after a Premium member uses a guest pass
+     *
+     * @param member the member whose guest passes went down by one
+     */
+    default void guestPassUsed(Premium member) {
+    }
+
+    /**
+     * Called after a Premium member gets a guest pass back
+     *
+     * @param member the member whose guest passes went up by one
+     */
+    default void guestPassAdded(Premium member) {
+    }
+
+    /**
+     * Called after the guest pass of a Family member is set
+     *
+     * @param member the member whose guest pass was set
+     * @param guest  true if a guest pass is now available; false otherwise
+     */
+    default void guestSet(Family member, boolean guest) {
+    }
+
+    /**
+     * Called after a Basic member attends a class
+     *
+     * @param member the member whose classes attended went up by one
+     */
+    default void classAttended(Basic member) {
+    }
+}
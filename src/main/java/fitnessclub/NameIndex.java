@@ -0,0 +1,391 @@
+package fitnessclub;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * A search index over the first and last names of the members of a list, for looking
+ * members up by part of their name. Names are case-folded and kept in sorted maps for
+ * prefix lookups, and each distinct name is split into trigrams for fuzzy lookups that
+ * tolerate typos. Results are ranked and capped at the requested number of members.
+ * Once attached, the index follows the members added to and removed from the list.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class NameIndex implements MutationListener {
+    private static final double MIN_SIMILARITY = 0.3;
+    private static final char LAST_CHAR = Character.MAX_VALUE;
+
+    private final NameTable firstNames;
+    private final NameTable lastNames;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates an empty index
+     */
+    public NameIndex() {
+        firstNames = new NameTable();
+        lastNames = new NameTable();
+    }
+
+    /**
+     * Creates an index over the members of a list and keeps it up to date as members
+     * are added and removed
+     *
+     * @param list the list to index
+     * @return the index
+     */
+    public static NameIndex attach(MemberList list) {
+        NameIndex index = new NameIndex();
+        for (int i = 0; i < list.getSize(); i++) {
+            index.add(list.getMembers()[i]);
+        }
+        list.addListener(index);
+        return index;
+    }
+
+    /**
+     * Adds a member to the index
+     *
+     * @param member the member to add
+     */
+    public void add(Member member) {
+        firstNames.add(fold(member.getProfile().getFname()), member);
+        lastNames.add(fold(member.getProfile().getLname()), member);
+    }
+
+    /**
+     * Removes a member from the index
+     *
+     * @param member the member to remove
+     */
+    public void remove(Member member) {
+        firstNames.remove(fold(member.getProfile().getFname()), member);
+        lastNames.remove(fold(member.getProfile().getLname()), member);
+    }
+
+    /**
+     * Adds a member added to the attached list
+     *
+     * @param list   the list the member was added to
+     * @param member the member added
+     */
+    @Override
+    public void memberAdded(MemberList list, Member member) {
+        add(member);
+    }
+
+    /**
+     * Removes a member removed from the attached list
+     *
+     * @param list   the list the member was removed from
+     * @param member the member removed
+     */
+    @Override
+    public void memberRemoved(MemberList list, Member member) {
+        remove(member);
+    }
+
+    /**
+     * Finds the members whose name starts with the query, ignoring case.
+     * A one-word query matches first or last names; with two words, the first must start
+     * the first name and the second the last name. Results are in alphabetical order of
+     * the matched name, so exact matches come first
+     *
+     * @param query the start of a name, or of a first and last name
+     * @param limit the maximum number of members to return
+     * @return the matching members; none when the limit is not positive
+     */
+    public List<Member> prefixSearch(String query, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        String[] words = fold(query.trim()).split("\\s+");
+        LinkedHashSet<Member> results = new LinkedHashSet<>();
+        if (words.length == 1) {
+            lastNames.withPrefix(words[0], limit, results);
+            firstNames.withPrefix(words[0], limit, results);
+        } else {
+            for (Map.Entry<String, LinkedHashSet<Member>> name : lastNames.prefixRange(words[1]).entrySet()) {
+                for (Member member : name.getValue()) {
+                    if (results.size() == limit) {
+                        return new ArrayList<>(results);
+                    }
+                    if (fold(member.getProfile().getFname()).startsWith(words[0])) {
+                        results.add(member);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Finds the members whose name is most similar to the query, ignoring case.
+     * Similarity is the share of trigrams two names have in common, so small typos
+     * still match. A one-word query is compared with first and last names; with two words,
+     * the members are ranked on the similarity of both their first and last name.
+     * Each distinct name is scored once, from the trigram index, however many members have it
+     *
+     * @param query a name, or a first and last name, possibly misspelled
+     * @param limit the maximum number of members to return
+     * @return the matching members, most similar first; none when the limit is not positive
+     */
+    public List<Member> fuzzySearch(String query, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        String[] words = fold(query.trim()).split("\\s+");
+        PriorityQueue<Match> best = new PriorityQueue<>();
+        if (words.length == 1) {
+            LinkedHashSet<Member> seen = new LinkedHashSet<>();
+            PriorityQueue<Match> names = new PriorityQueue<>(Collections.reverseOrder());
+            lastNames.similarNames(words[0], names);
+            firstNames.similarNames(words[0], names);
+            while (!names.isEmpty() && seen.size() < limit) {
+                Match name = names.poll();
+                for (Member member : name.members) {
+                    if (seen.size() == limit) {
+                        break;
+                    }
+                    seen.add(member);
+                }
+            }
+            return new ArrayList<>(seen);
+        }
+        PriorityQueue<Match> lastMatches = new PriorityQueue<>();
+        lastNames.similarNames(words[1], lastMatches);
+        HashMap<String, Double> firstScores = firstNames.scoreNames(words[0]);
+        HashMap<String, Double> byFname = new HashMap<>(); //unfolded first name -> score
+        for (Match lastName : lastMatches) {
+            for (Member member : lastName.members) {
+                double score = lastName.score + byFname.computeIfAbsent(member.getProfile().getFname(),
+                        fname -> firstScores.getOrDefault(fold(fname), 0.0));
+                if (best.size() < limit) {
+                    best.add(new Match(score, member));
+                } else if (score > best.peek().score) {
+                    best.poll();
+                    best.add(new Match(score, member));
+                }
+            }
+        }
+        ArrayList<Member> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            results.add(0, best.poll().members.iterator().next());
+        }
+        return results;
+    }
+
+    /**
+     * Helper method to case-fold a name
+     *
+     * @param name the name
+     * @return the name in lower case
+     */
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Helper method to split a folded name into trigrams, padded so that the start
+     * and end of the name count as well
+     *
+     * @param name the folded name
+     * @return the distinct trigrams of the name
+     */
+    private static HashSet<String> trigrams(String name) {
+        String padded = "  " + name + " ";
+        HashSet<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * The members of one name or one member, with how well they matched a query.
+     * Ordered by score, lowest first
+     */
+    private static class Match implements Comparable<Match> {
+        private final double score;
+        private final String name;
+        private final LinkedHashSet<Member> members;
+
+        /**
+         * Parameterized constructor requires 3 parameters to create a Match for a name
+         *
+         * @param score   the similarity of the name to the query
+         * @param name    the folded name
+         * @param members the members with that name
+         */
+        Match(double score, String name, LinkedHashSet<Member> members) {
+            this.score = score;
+            this.name = name;
+            this.members = members;
+        }
+
+        /**
+         * Parameterized constructor requires 2 parameters to create a Match for a single member
+         *
+         * @param score  the similarity of the member to the query
+         * @param member the member
+         */
+        Match(double score, Member member) {
+            this(score, null, new LinkedHashSet<>(List.of(member)));
+        }
+
+        /**
+         * Compares two matches by score, breaking ties by name
+         *
+         * @param o the match to be compared
+         * @return a negative, zero, or positive number as this match scored lower, the same, or higher
+         */
+        @Override
+        public int compareTo(Match o) {
+            int byScore = Double.compare(this.score, o.score);
+            if (byScore != 0 || this.name == null || o.name == null) {
+                return byScore;
+            }
+            return o.name.compareTo(this.name);
+        }
+    }
+
+    /**
+     * The members indexed by one of their names, both by the whole name and by its trigrams
+     */
+    private static class NameTable {
+        private final TreeMap<String, LinkedHashSet<Member>> byName;
+        private final HashMap<String, HashSet<String>> byTrigram; //trigram -> names containing it
+        private final HashMap<String, Integer> numTrigrams; //name -> number of distinct trigrams
+
+        /**
+         * Default constructor/no-argument constructor.
+         * Creates an empty table
+         */
+        NameTable() {
+            byName = new TreeMap<>();
+            byTrigram = new HashMap<>();
+            numTrigrams = new HashMap<>();
+        }
+
+        /**
+         * Adds a member under a name
+         *
+         * @param name   the folded name
+         * @param member the member
+         */
+        void add(String name, Member member) {
+            LinkedHashSet<Member> members = byName.get(name);
+            if (members == null) {
+                members = new LinkedHashSet<>();
+                byName.put(name, members);
+                HashSet<String> trigrams = trigrams(name);
+                for (String trigram : trigrams) {
+                    byTrigram.computeIfAbsent(trigram, key -> new HashSet<>()).add(name);
+                }
+                numTrigrams.put(name, trigrams.size());
+            }
+            members.add(member);
+        }
+
+        /**
+         * Removes a member from under a name, dropping the name when no member has it anymore
+         *
+         * @param name   the folded name
+         * @param member the member
+         */
+        void remove(String name, Member member) {
+            LinkedHashSet<Member> members = byName.get(name);
+            if (members == null || !members.remove(member) || !members.isEmpty()) {
+                return;
+            }
+            byName.remove(name);
+            numTrigrams.remove(name);
+            for (String trigram : trigrams(name)) {
+                HashSet<String> names = byTrigram.get(trigram);
+                names.remove(name);
+                if (names.isEmpty()) {
+                    byTrigram.remove(trigram);
+                }
+            }
+        }
+
+        /**
+         * Returns the names starting with a prefix, with their members
+         *
+         * @param prefix the folded prefix
+         * @return a view of the names in alphabetical order
+         */
+        Map<String, LinkedHashSet<Member>> prefixRange(String prefix) {
+            return byName.subMap(prefix, true, prefix + LAST_CHAR, false);
+        }
+
+        /**
+         * Adds the members of the names starting with a prefix, until there are enough results
+         *
+         * @param prefix  the folded prefix
+         * @param limit   the maximum number of results
+         * @param results the results to add to
+         */
+        void withPrefix(String prefix, int limit, LinkedHashSet<Member> results) {
+            for (LinkedHashSet<Member> members : prefixRange(prefix).values()) {
+                for (Member member : members) {
+                    if (results.size() == limit) {
+                        return;
+                    }
+                    results.add(member);
+                }
+            }
+        }
+
+        /**
+         * Scores every name sharing a trigram with the query, adding those similar enough
+         *
+         * @param query   the folded query
+         * @param matches the queue to add a Match to for each similar name
+         */
+        void similarNames(String query, PriorityQueue<Match> matches) {
+            for (Map.Entry<String, Double> candidate : scoreNames(query).entrySet()) {
+                if (candidate.getValue() >= MIN_SIMILARITY) {
+                    matches.add(new Match(candidate.getValue(), candidate.getKey(), byName.get(candidate.getKey())));
+                }
+            }
+        }
+
+        /**
+         * Computes the trigram similarity to the query of every name sharing a trigram with it:
+         * the shared trigrams over all distinct trigrams of the two, from 0 to 1.
+         * Names sharing no trigram have a similarity of 0 and are left out
+         *
+         * @param query the folded query
+         * @return the similarity of each name sharing a trigram with the query
+         */
+        HashMap<String, Double> scoreNames(String query) {
+            HashSet<String> queryTrigrams = trigrams(query);
+            HashMap<String, Integer> shared = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                HashSet<String> names = byTrigram.get(trigram);
+                if (names != null) {
+                    for (String name : names) {
+                        shared.merge(name, 1, Integer::sum);
+                    }
+                }
+            }
+            HashMap<String, Double> scores = new HashMap<>(shared.size() * 2);
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                int nameTrigrams = numTrigrams.get(candidate.getKey());
+                scores.put(candidate.getKey(), (double) candidate.getValue()
+                        / (queryTrigrams.size() + nameTrigrams - candidate.getValue()));
+            }
+            return scores;
+        }
+    }
+}
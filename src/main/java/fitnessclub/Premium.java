@@ -1,5 +1,7 @@
 package fitnessclub;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * This class represents a premium membership type in the fitness club.
  * This is a subclass of Member and includes specific functionality,
@@ -12,7 +14,7 @@ public class Premium extends Member {
     private static final int TOTAL_MONTHS = 12;
     private static final int FREE_MONTH = 1;
 
-    private int guestPass;
+    private final AtomicInteger guestPass;
 
     /**
      * Parameterized constructor requires 4 parameters to create a Premium member object
@@ -24,7 +26,7 @@ public class Premium extends Member {
      */
     public Premium(Profile profile, Date expire, Location homeStudio, int guestPass) {
         super(profile, expire, homeStudio);
-        this.guestPass = guestPass;
+        this.guestPass = new AtomicInteger(guestPass);
     }
 
     /**
@@ -33,21 +35,76 @@ public class Premium extends Member {
      * @return the number of guests passes available
      */
     public int getGuestPass() {
-        return guestPass;
+        return guestPass.get();
     }
 
     /**
      * Decrements the number of guest passes available
+     *
+     * @throws RuntimeException when a listener refuses the change; the pass is given back
      */
     public void useGuestPass() {
-        guestPass--;
+        guestPass.decrementAndGet();
+        notifyUsed();
     }
 
     /**
      * Increments the number of guest passes available
+     *
+     * @throws RuntimeException when a listener refuses the change; the pass is taken back
      */
     public void addGuestPass() {
-        guestPass++;
+        guestPass.incrementAndGet();
+        if (getListener() != null) {
+            try {
+                getListener().guestPassAdded(this);
+            } catch (RuntimeException e) {
+                guestPass.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Helper method to tell the listener about a guest pass used,
+     * giving the pass back if the listener refuses the change
+     */
+    private void notifyUsed() {
+        if (getListener() != null) {
+            try {
+                getListener().guestPassUsed(this);
+            } catch (RuntimeException e) {
+                guestPass.incrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Takes one guest pass with a compare-and-set, failing if none are left
+     *
+     * @return true if a pass was available and is now used; false otherwise
+     * @throws RuntimeException when a listener refuses the change; the pass is given back
+     */
+    @Override
+    public boolean tryUseGuestPass() {
+        int left = guestPass.get();
+        while (left > 0) {
+            if (guestPass.compareAndSet(left, left - 1)) {
+                notifyUsed();
+                return true;
+            }
+            left = guestPass.get();
+        }
+        return false;
+    }
+
+    /**
+     * Gives back a guest pass taken with tryUseGuestPass
+     */
+    @Override
+    public void returnGuestPass() {
+        addGuestPass();
     }
 
     /**
@@ -57,25 +114,32 @@ public class Premium extends Member {
      */
     @Override
     public double bill() {
+        return billFor();
+    }
+
+    /**
+     * Calculates the fee for any Premium membership
+     *
+     * @return the total bill amount
+     */
+    static double billFor() {
         return MONTH_FEE * (TOTAL_MONTHS - FREE_MONTH);
     }
 
     /**
-     * Returns a string representation of a Premium member object.
+     * Appends the string representation of a Premium member object.
      * Shows dynamic binding (polymorphism)
      *
-     * @return a string representation of the Premium member
+     * @param out   the builder to append to
+     * @param today the date to check the expiration against
+     * @return the builder
      */
     @Override
-    public String toString() {
-        String result;
-
-        if (isExpired()) {
-            result = "not eligible";
-        } else {
-            result = "" + this.getGuestPass();
+    public StringBuilder appendTo(StringBuilder out, Date today) {
+        super.appendTo(out, today).append(", (Premium) guest-pass remaining: ");
+        if (isExpired(today)) {
+            return out.append("not eligible");
         }
-        return super.toString() + ", (Premium) guest-pass remaining: " + result;
-
+        return out.append(this.getGuestPass());
     }
 }
@@ -2,13 +2,20 @@ package fitnessclub;
 
 /**
  * Represents the details of the profile of a member at the fitness club.
+ * The case-folded names and the hash code are computed once when the profile is created,
+ * and every name is interned, so members with the same name share one string and names
+ * that are equal ignoring case have the same folded instance. Equality and comparison
+ * then mostly come down to reference and int checks.
  *
  * @author Ved Patel, Vivek Manthri
  */
 public class Profile implements Comparable<Profile> {
-    private String fname;
-    private String lname;
-    private Date dob;
+    private final String fname;
+    private final String lname;
+    private final Date dob;
+    private final String foldedFname; //interned, for equality ignoring case
+    private final String foldedLname; //interned, for equality and order ignoring case
+    private final int hash;
 
     /**
      * Parameterized constructor requires 3 parameters to create a Profile
@@ -18,9 +25,14 @@ public class Profile implements Comparable<Profile> {
      * @param dob   the date of birth
      */
     public Profile(String fname, String lname, Date dob) {
-        this.fname = fname;
-        this.lname = lname;
+        this.fname = fname.intern();
+        this.lname = lname.intern();
         this.dob = dob;
+        this.foldedFname = fold(this.fname);
+        this.foldedLname = fold(this.lname);
+        int hash = this.foldedFname.hashCode();
+        hash = 31 * hash + this.foldedLname.hashCode();
+        this.hash = 31 * hash + dob.hashCode();
     }
 
     /**
@@ -41,6 +53,15 @@ public class Profile implements Comparable<Profile> {
         return lname;
     }
 
+    /**
+     * Getter method returns the date of birth from the profile
+     *
+     * @return the date of birth
+     */
+    public Date getDob() {
+        return dob;
+    }
+
     /**
      * Determines if two Profiles objects are equal
      *
@@ -49,41 +70,67 @@ public class Profile implements Comparable<Profile> {
      */
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof Profile) {
             Profile profile = (Profile) obj;
-            return this.fname.equalsIgnoreCase(profile.fname)
-                    && this.lname.equalsIgnoreCase(profile.lname) && this.dob.equals(profile.dob);
+            return this.hash == profile.hash && this.foldedFname == profile.foldedFname
+                    && this.foldedLname == profile.foldedLname && this.dob.equals(profile.dob);
         }
         return false;
     }
 
     /**
-     * Compares two Profile objects based on first name, last name, and DOB
+     * Returns a hash code consistent with equals, computed when the profile was created
+     *
+     * @return the hash code of the profile
+     */
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    /**
+     * Helper method to case-fold a name the same way equalsIgnoreCase and compareToIgnoreCase
+     * compare characters, returning the interned result
+     *
+     * @param name the interned name to fold
+     * @return the interned folded name; the name itself when folding does not change it
+     */
+    private static String fold(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.toLowerCase(Character.toUpperCase(c)) != c) {
+                char[] folded = name.toCharArray();
+                for (int j = i; j < folded.length; j++) {
+                    folded[j] = Character.toLowerCase(Character.toUpperCase(folded[j]));
+                }
+                return new String(folded).intern();
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Compares two Profile objects based on last name ignoring case, first name, and DOB
      *
      * @param o the profile object to be compared
-     * @return a negative one, zero, or a positive one depending on if this profile is
+     * @return a negative number, zero, or a positive number depending on if this profile is
      * less than, equal to, or greater than the specified profile
      */
     @Override
     public int compareTo(Profile o) {
-        if (this.lname.compareToIgnoreCase(o.lname) > 0) {
-            return 1;
-        } else if (this.lname.compareToIgnoreCase(o.lname) < 0) {
-            return -1;
+        if (this.foldedLname != o.foldedLname) {
+            return this.foldedLname.compareTo(o.foldedLname);
         }
-
-        if (this.fname.compareTo(o.fname) > 0) {
-            return 1;
-        } else if (this.fname.compareTo(o.fname) < 0) {
-            return -1;
+        if (this.fname != o.fname) {
+            int byFname = this.fname.compareTo(o.fname);
+            if (byFname != 0) {
+                return byFname;
+            }
         }
-
-        if (this.dob.compareTo(o.dob) == 1) {
-            return 1;
-        } else if (this.dob.compareTo(o.dob) == -1) {
-            return -1;
-        }
-        return 0;
+        return this.dob.compareTo(o.dob);
     }
 
     /**
@@ -93,6 +140,17 @@ public class Profile implements Comparable<Profile> {
      */
     @Override
     public String toString() {
-        return this.fname + ":" + this.lname + ":" + this.dob;
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends the string representation of the profile to a builder
+     *
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder out) {
+        out.append(this.fname).append(':').append(this.lname).append(':');
+        return this.dob.appendTo(out);
     }
 }
@@ -0,0 +1,307 @@
+package fitnessclub;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the member reports to an Appendable or a WritableByteChannel through one buffer.
+ * Every row is formatted into the same reused builder with one shared date for the
+ * expiration checks, and the buffer is handed to the output only when it fills up,
+ * so a large roster can be exported without garbage per row or a write per line.
+ * Reports can optionally be split into pages, each starting with a "-page N-" line.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class ReportWriter {
+    private static final int BUFFER_CHARS = 1 << 16;
+    private static final int CENTS_PER_DOLLAR = 100;
+    private static final int TWO_DIGITS = 10;
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final Appendable appendable;
+    private final WritableByteChannel channel;
+    private final StringBuilder buffer;
+    private final StringBuilder row;
+    private CharsetEncoder encoder;
+    private ByteBuffer bytes;
+    private int pageSize; //rows per page; 0 when the report is not paged
+    private int rowsInPage;
+    private int page;
+    private Date today;
+
+    /**
+     * Parameterized constructor requires 1 parameter to create a writer over an Appendable,
+     * such as System.out or a Writer
+     *
+     * @param out the output the reports are written to
+     */
+    public ReportWriter(Appendable out) {
+        this(out, null);
+    }
+
+    /**
+     * Parameterized constructor requires 1 parameter to create a writer over a channel,
+     * such as a FileChannel. Reports are encoded as UTF-8; a character that cannot be encoded,
+     * such as a lone surrogate in a name, is written as a replacement character
+     *
+     * @param out the channel the reports are written to
+     */
+    public ReportWriter(WritableByteChannel out) {
+        this(null, out);
+        encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes = ByteBuffer.allocateDirect(BUFFER_CHARS * 3);
+    }
+
+    /**
+     * Helper constructor shared by the public constructors
+     *
+     * @param appendable the Appendable output; null when writing to a channel
+     * @param channel    the channel output; null when writing to an Appendable
+     */
+    private ReportWriter(Appendable appendable, WritableByteChannel channel) {
+        this.appendable = appendable;
+        this.channel = channel;
+        buffer = new StringBuilder(BUFFER_CHARS);
+        row = new StringBuilder();
+        pageSize = 0;
+    }
+
+    /**
+     * Setter method to split the following reports into pages
+     *
+     * @param pageSize the number of rows per page; 0 to write reports without pages
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Writes all the members of a list sorted by county and then zip code
+     *
+     * @param list the members to write
+     * @throws IOException when the output cannot be written
+     */
+    public void writeByCounty(MemberList list) throws IOException {
+        begin("-list of members sorted by county then zipcode-");
+        try {
+            list.forEachByCounty(this::writeMember);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        end("-end of list-\n");
+    }
+
+    /**
+     * Writes all the members of a list sorted by their profiles
+     *
+     * @param list the members to write
+     * @throws IOException when the output cannot be written
+     */
+    public void writeByMember(MemberList list) throws IOException {
+        begin("\n-list of members sorted by member profiles-");
+        try {
+            list.forEachByProfile(this::writeMember);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        end("-end of list-\n");
+    }
+
+    /**
+     * Writes all the members of a list with their next bill due amounts, in list order
+     *
+     * @param list the members to write
+     * @throws IOException when the output cannot be written
+     */
+    public void writeFees(MemberList list) throws IOException {
+        begin("\n-list of members with next dues-");
+        Member[] members = list.getMembers();
+        for (int i = 0; i < list.getSize(); i++) {
+            startRow();
+            members[i].appendTo(row, today).append(" [next due: $");
+            appendMoney(members[i].bill());
+            row.append(']');
+            endRow();
+        }
+        end("-end of list-\n\n");
+    }
+
+    /**
+     * Writes all the members of a columnar store with their next bill due amounts, in row order,
+     * formatting each row straight from the columns
+     *
+     * @param store the members to write
+     * @throws IOException when the output cannot be written
+     */
+    public void writeFees(MemberStore store) throws IOException {
+        begin("\n-list of members with next dues-");
+        int epochDay = today.toEpochDay();
+        for (int i = 0; i < store.getSize(); i++) {
+            startRow();
+            store.appendTo(i, row, epochDay).append(" [next due: $");
+            appendMoney(store.bill(i));
+            row.append(']');
+            endRow();
+        }
+        end("-end of list-\n\n");
+    }
+
+    /**
+     * Hands everything buffered so far to the output.
+     * The buffer always ends with a whole line, so it is encoded as a complete input
+     *
+     * @throws IOException when the output cannot be written
+     */
+    public void flush() throws IOException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        if (appendable != null) {
+            appendable.append(buffer);
+        } else {
+            CharBuffer chars = CharBuffer.wrap(buffer);
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(chars, bytes, true);
+                check(result);
+                drain();
+            } while (result.isOverflow());
+            do {
+                result = encoder.flush(bytes);
+                check(result);
+                drain();
+            } while (result.isOverflow());
+        }
+        buffer.setLength(0);
+    }
+
+    /**
+     * Helper method to stop on an encoding error, which the replace actions should not let through
+     *
+     * @param result the result of an encoder step
+     * @throws IOException when the result is an error
+     */
+    private static void check(CoderResult result) throws IOException {
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    /**
+     * Helper method to write the encoded bytes to the channel and empty the byte buffer
+     *
+     * @throws IOException when the channel cannot be written
+     */
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Helper method to start a report: reads today's date once and writes the title line
+     *
+     * @param title the title line
+     * @throws IOException when the output cannot be written
+     */
+    private void begin(String title) throws IOException {
+        today = new Date();
+        page = 0;
+        rowsInPage = 0;
+        line(title);
+    }
+
+    /**
+     * Helper method to finish a report with its closing line and flush it
+     *
+     * @param closing the closing line
+     * @throws IOException when the output cannot be written
+     */
+    private void end(String closing) throws IOException {
+        line(closing);
+        flush();
+    }
+
+    /**
+     * Helper method to write one member row, for the ordered walks of MemberList
+     *
+     * @param member the member to write
+     * @throws UncheckedIOException when the output cannot be written
+     */
+    private void writeMember(Member member) {
+        try {
+            startRow();
+            member.appendTo(row, today);
+            endRow();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Helper method to clear the row builder, writing a page line first when a new page starts
+     *
+     * @throws IOException when the output cannot be written
+     */
+    private void startRow() throws IOException {
+        if (pageSize > 0 && rowsInPage % pageSize == 0) {
+            page++;
+            line("-page " + page + "-");
+        }
+        rowsInPage++;
+        row.setLength(0);
+    }
+
+    /**
+     * Helper method to move the finished row into the buffer
+     *
+     * @throws IOException when the output cannot be written
+     */
+    private void endRow() throws IOException {
+        buffer.append(row).append(NEWLINE);
+        if (buffer.length() >= BUFFER_CHARS) {
+            flush();
+        }
+    }
+
+    /**
+     * Helper method to buffer one line that is not a member row
+     *
+     * @param text the line, without the line separator
+     * @throws IOException when the output cannot be written
+     */
+    private void line(String text) throws IOException {
+        buffer.append(text).append(NEWLINE);
+        if (buffer.length() >= BUFFER_CHARS) {
+            flush();
+        }
+    }
+
+    /**
+     * Helper method to append an amount with two decimal places to the row,
+     * the same as String.format("%.2f") for non-negative amounts
+     *
+     * @param amount the amount to append
+     */
+    private void appendMoney(double amount) {
+        long cents = Math.round(amount * CENTS_PER_DOLLAR);
+        long remainder = cents % CENTS_PER_DOLLAR;
+        row.append(cents / CENTS_PER_DOLLAR).append('.');
+        if (remainder < TWO_DIGITS) {
+            row.append('0');
+        }
+        row.append(remainder);
+    }
+}
@@ -0,0 +1,119 @@
+package fitnessclub;
+
+import javafx.concurrent.Task;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A background task that works through rows, such as the lines of a member file or the members
+ * of a billing run, and reports its progress and throughput in rows per second as its message.
+ * The rows and the work done are added up in LongAdders, so the worker threads of a parallel
+ * load or billing run can all report without contending on one counter; the progress and the
+ * message are published at most once every REPORT_INTERVAL_NANOS, by whichever thread is first
+ * to see that the interval passed.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public abstract class RowTask<V> extends Task<V> {
+    private static final long REPORT_INTERVAL_NANOS = 100_000_000L;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final LongAdder rows;
+    private final LongAdder workDone;
+    private final AtomicLong nextReport;
+    private volatile long totalWork;
+    private volatile long startNanos;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates a task with no rows done and an unknown amount of work
+     */
+    protected RowTask() {
+        rows = new LongAdder();
+        workDone = new LongAdder();
+        nextReport = new AtomicLong();
+        totalWork = -1;
+    }
+
+    /**
+     * Does the work of the task, calling addRows as rows are done
+     *
+     * @return the result of the task
+     * @throws Exception when the work fails; the task then fails with it
+     */
+    protected abstract V compute() throws Exception;
+
+    /**
+     * Starts the throughput clock, does the work and reports the final counts
+     *
+     * @return the result of the task
+     * @throws Exception when the work fails
+     */
+    @Override
+    protected final V call() throws Exception {
+        startNanos = System.nanoTime();
+        nextReport.set(startNanos + REPORT_INTERVAL_NANOS);
+        V value = compute();
+        report(System.nanoTime());
+        return value;
+    }
+
+    /**
+     * Sets the total amount of work, in the same unit as the work passed to addRows
+     *
+     * @param totalWork the total amount of work; negative if it is not known
+     */
+    protected void setTotalWork(long totalWork) {
+        this.totalWork = totalWork;
+    }
+
+    /**
+     * Adds rows that were done and the work they took, from any thread.
+     * Stops the task by throwing when it was cancelled, so a long loop or a parallel run
+     * calling this ends soon after the user cancels
+     *
+     * @param numRows the number of rows done
+     * @param work    the amount of work done, such as bytes read; the rows if there is no other unit
+     * @throws CancellationException when the task was cancelled
+     */
+    protected void addRows(long numRows, long work) {
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+        rows.add(numRows);
+        workDone.add(work);
+        long now = System.nanoTime();
+        long due = nextReport.get();
+        if (now - due >= 0 && nextReport.compareAndSet(due, now + REPORT_INTERVAL_NANOS)) {
+            report(now);
+        }
+    }
+
+    /**
+     * A getter method returns the number of rows done so far
+     *
+     * @return the number of rows done
+     */
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * Helper method to publish the progress and the throughput so far
+     *
+     * @param now the current System.nanoTime()
+     */
+    private void report(long now) {
+        long numRows = rows.sum();
+        long total = totalWork;
+        if (total > 0) {
+            updateProgress(Math.min(workDone.sum(), total), total);
+        } else {
+            updateProgress(-1, 1);
+        }
+        double seconds = Math.max(now - startNanos, 1) / NANOS_PER_SECOND;
+        updateMessage(String.format("%,d rows, %,.0f rows/sec", numRows, numRows / seconds));
+    }
+}
@@ -2,16 +2,27 @@ package fitnessclub;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
  * An instance of this class holds schedule and list of fitness classes
- * loaded from the text file.
+ * loaded from the text file. The list grows as classes are added, and every class is
+ * also indexed by the ordinals of its offer, instructor, studio and time packed into one
+ * array index, so finding the class of an enrollment command takes constant time.
+ * Classes are booked through a BookingEngine, which rejects a class whose instructor
+ * already teaches at that time.
  *
  * @author Ved Patel, Vivek Manthri
  */
 public class Schedule {
-    private static final int TOTAL_CLASSES = 15;
+    private static final int INITIAL_CAPACITY = 15;
+    private static final int GROW_FACTOR = 2;
+    private static final int NUM_INSTRUCTORS = Instructor.values().length;
+    private static final int NUM_LOCATIONS = Location.values().length;
+    private static final int NUM_TIMES = Time.values().length;
+    private static final int NUM_SESSIONS = Offer.values().length * NUM_INSTRUCTORS * NUM_LOCATIONS;
     private static final int CLASS_TYPE_INDEX = 0;
     private static final int INSTRUCTOR_INDEX = 1;
     private static final int TIME_INDEX = 2;
@@ -19,14 +30,41 @@ public class Schedule {
 
     private FitnessClass[] classes;
     private int numClasses;
+    private final FitnessClass[] bySession; //first class of each offer, instructor and studio
+    private final FitnessClass[] bySessionAndTime; //class of each session at each time
+    private final BookingEngine bookings;
+    private final MemberIds ids; //member ids of the class rosters, shared by every class
 
     /**
      * Default constructor/no-argument constructor.
      * Initializes a new Schedule
      */
     public Schedule() {
-        classes = new FitnessClass[TOTAL_CLASSES];
+        this(new MemberIds());
+    }
+
+    /**
+     * Parameterized constructor requires 1 parameter to create a Schedule sharing the
+     * member ids of another one, so classes carried over from it keep their ids
+     *
+     * @param ids the member id registry to share
+     */
+    Schedule(MemberIds ids) {
+        classes = new FitnessClass[INITIAL_CAPACITY];
         numClasses = 0;
+        bySession = new FitnessClass[NUM_SESSIONS];
+        bySessionAndTime = new FitnessClass[NUM_SESSIONS * NUM_TIMES];
+        bookings = new BookingEngine();
+        this.ids = ids;
+    }
+
+    /**
+     * Getter method returns the registry handing out the member ids of the class rosters
+     *
+     * @return the member id registry shared by the classes of the schedule
+     */
+    MemberIds getIds() {
+        return ids;
     }
 
     /**
@@ -47,6 +85,15 @@ public class Schedule {
         return numClasses;
     }
 
+    /**
+     * Getter method returns the bookings of the instructors and studios in the schedule.
+     *
+     * @return the booking engine, for conflict and utilization queries.
+     */
+    public BookingEngine getBookings() {
+        return bookings;
+    }
+
     /**
      * Finds a fitness class from the list based on fitness class details.
      *
@@ -56,37 +103,128 @@ public class Schedule {
      * @return The FitnessClass if found; null otherwise.
      */
     public FitnessClass findClass(Offer classInfo, Instructor instructor, Location studio) {
+        return bySession[sessionKey(classInfo, instructor, studio)];
+    }
+
+    /**
+     * Finds a fitness class from the list based on fitness class details, including the time.
+     *
+     * @param classInfo  The type of class.
+     * @param instructor The instructor of the class.
+     * @param studio     The studio location of the class.
+     * @param time       The time of the class.
+     * @return The FitnessClass if found; null otherwise.
+     */
+    public FitnessClass findClass(Offer classInfo, Instructor instructor, Location studio, Time time) {
+        return bySessionAndTime[sessionKey(classInfo, instructor, studio) * NUM_TIMES + time.ordinal()];
+    }
+
+    /**
+     * Adds a fitness class to the end of the schedule, growing the list when it is full.
+     * The class is not added if its instructor already teaches another class at the same time.
+     *
+     * @param fitnessClass The class to add.
+     * @return true if the class is added; false if it would double-book its instructor.
+     */
+    public boolean add(FitnessClass fitnessClass) {
+        if (!bookings.book(fitnessClass)) {
+            return false;
+        }
+        fitnessClass.useIds(ids);
+        if (numClasses == classes.length) {
+            classes = Arrays.copyOf(classes, classes.length * GROW_FACTOR);
+        }
+        classes[numClasses] = fitnessClass;
+        numClasses++;
+        int session = sessionKey(fitnessClass.getClassInfo(), fitnessClass.getInstructor(), fitnessClass.getStudio());
+        if (bySession[session] == null) {
+            bySession[session] = fitnessClass;
+        }
+        int sessionAndTime = session * NUM_TIMES + fitnessClass.getTime().ordinal();
+        bySessionAndTime[sessionAndTime] = fitnessClass;
+        return true;
+    }
+
+    /**
+     * Collects the ids of the members enrolled in any class at a studio.
+     *
+     * @param studio The studio location.
+     * @return a new bitmap of the ids of the members attending classes there.
+     */
+    public MemberBitmap attendees(Location studio) {
+        MemberBitmap attendees = new MemberBitmap();
         for (int i = 0; i < numClasses; i++) {
-            if (classes[i].getClassInfo().equals(classInfo)
-                    && classes[i].getInstructor().equals(instructor) && classes[i].getStudio().equals(studio)) {
-                return classes[i];
+            if (classes[i].getStudio() == studio) {
+                attendees = MemberBitmap.or(attendees, classes[i].getMemberIds());
             }
         }
-        return null;
+        return attendees;
+    }
+
+    /**
+     * Counts the members enrolled in classes at both of two studios.
+     *
+     * @param studio      One studio location.
+     * @param otherStudio The other studio location.
+     * @return the number of members attending classes at both studios.
+     */
+    public int attendanceOverlap(Location studio, Location otherStudio) {
+        return MemberBitmap.andCardinality(attendees(studio), attendees(otherStudio));
+    }
+
+    /**
+     * Helper method to pack the ordinals of a class's offer, instructor and studio into one index
+     *
+     * @param classInfo  The type of class.
+     * @param instructor The instructor of the class.
+     * @param studio     The studio location of the class.
+     * @return the index of the session, from 0 to NUM_SESSIONS - 1.
+     */
+    private static int sessionKey(Offer classInfo, Instructor instructor, Location studio) {
+        return (classInfo.ordinal() * NUM_INSTRUCTORS + instructor.ordinal()) * NUM_LOCATIONS + studio.ordinal();
     }
 
     /**
      * Loads the schedule of fitness classes from a text file into the array of classes.
+     * Every line is parsed and checked before any class is added, so a bad line leaves
+     * the schedule as it was.
      *
      * @param file The text file from which to load the classes.
-     * @throws IOException When an I/O error occurs when trying to access/read the file.
+     * @throws IOException              When an I/O error occurs when trying to access/read the file.
+     * @throws IllegalArgumentException When a line names an unknown class, instructor, time or studio,
+     *                                  or books an instructor who already teaches at that time.
      */
     public void load(File file) throws IOException {
-        Scanner scanner = new Scanner(file);
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            if (line.isEmpty()) {
-                continue;
+        ArrayList<FitnessClass> loaded = new ArrayList<>();
+        FitnessClass[] loadedByInstructorTime = new FitnessClass[NUM_INSTRUCTORS * NUM_TIMES];
+        try (Scanner scanner = new Scanner(file)) {
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split("\\s");
+                Offer classType = Offer.valueOf(parts[CLASS_TYPE_INDEX].toUpperCase());
+                Instructor instructor = Instructor.valueOf(parts[INSTRUCTOR_INDEX].toUpperCase());
+                Time time = Time.valueOf(parts[TIME_INDEX].toUpperCase());
+                Location location = Location.valueOf(parts[LOCATION_INDEX].toUpperCase());
+
+                FitnessClass fitnessClass = new FitnessClass(classType, instructor, location, time);
+                int slot = instructor.ordinal() * NUM_TIMES + time.ordinal();
+                FitnessClass conflict = bookings.conflictOf(fitnessClass);
+                if (conflict == null) {
+                    conflict = loadedByInstructorTime[slot];
+                }
+                if (conflict != null) {
+                    throw new IllegalArgumentException(instructor + " is already teaching "
+                            + conflict + "; cannot also teach " + line);
+                }
+                loadedByInstructorTime[slot] = fitnessClass;
+                loaded.add(fitnessClass);
             }
-            String[] parts = line.split("\\s");
-            Offer classType = Offer.valueOf(parts[CLASS_TYPE_INDEX].toUpperCase());
-            Instructor instructor = Instructor.valueOf(parts[INSTRUCTOR_INDEX].toUpperCase());
-            Time time = Time.valueOf(parts[TIME_INDEX].toUpperCase());
-            Location location = Location.valueOf(parts[LOCATION_INDEX].toUpperCase());
-
-            classes[numClasses] = new FitnessClass(classType, instructor, location, time);
-            numClasses++;
         }
-        scanner.close();
+        for (FitnessClass fitnessClass : loaded) {
+            add(fitnessClass);
+        }
     }
 }
@@ -0,0 +1,113 @@
+package fitnessclub;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the changes a schedule reload applied to the live schedule: the classes added,
+ * the classes removed, and the classes moved to a new time, with the class each one replaced.
+ * Classes that did not change are kept as they were, with their members and guests.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class ScheduleDiff {
+    private final ArrayList<FitnessClass> added;
+    private final ArrayList<FitnessClass> removed;
+    private final ArrayList<FitnessClass> changed;
+    private final ArrayList<FitnessClass> replaced;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Initializes an empty diff
+     */
+    public ScheduleDiff() {
+        added = new ArrayList<>();
+        removed = new ArrayList<>();
+        changed = new ArrayList<>();
+        replaced = new ArrayList<>();
+    }
+
+    /**
+     * A getter method returns the classes that are new in the schedule
+     *
+     * @return the added classes, with no members or guests
+     */
+    public List<FitnessClass> getAdded() {
+        return added;
+    }
+
+    /**
+     * A getter method returns the classes no longer in the schedule
+     *
+     * @return the removed classes, with the members and guests they had
+     */
+    public List<FitnessClass> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * A getter method returns the classes that were moved to a new time
+     *
+     * @return the classes at their new time, with the members and guests of the classes they replaced
+     */
+    public List<FitnessClass> getChanged() {
+        return changed;
+    }
+
+    /**
+     * A getter method returns the classes replaced by the changed classes, in the same order
+     *
+     * @return the classes at their old time
+     */
+    public List<FitnessClass> getReplaced() {
+        return replaced;
+    }
+
+    /**
+     * Checks if the reload changed nothing
+     *
+     * @return true if no class was added, removed or changed; false otherwise
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Records an added class
+     *
+     * @param fitnessClass the class added
+     */
+    void addAdded(FitnessClass fitnessClass) {
+        added.add(fitnessClass);
+    }
+
+    /**
+     * Records a removed class
+     *
+     * @param fitnessClass the class removed
+     */
+    void addRemoved(FitnessClass fitnessClass) {
+        removed.add(fitnessClass);
+    }
+
+    /**
+     * Records a class moved to a new time
+     *
+     * @param fitnessClass the class at its new time
+     * @param oldClass     the class it replaced
+     */
+    void addChanged(FitnessClass fitnessClass, FitnessClass oldClass) {
+        changed.add(fitnessClass);
+        replaced.add(oldClass);
+    }
+
+    /**
+     * Returns a textual summary of the diff
+     *
+     * @return the number of classes added, removed and changed
+     */
+    @Override
+    public String toString() {
+        return added.size() + " added, " + removed.size() + " removed, " + changed.size() + " changed";
+    }
+}
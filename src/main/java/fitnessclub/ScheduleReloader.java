@@ -0,0 +1,354 @@
+package fitnessclub;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the live schedule in step with the schedule file. A reload parses the file into a new
+ * Schedule, but reuses the live FitnessClass for every class that did not change, so its
+ * members and guests are kept; a class moved to a new time gets its members and guests copied
+ * over. The new schedule is then swapped in with one atomic reference update, so readers of
+ * getSchedule see either the old schedule or the new one, never a mix of both.
+ * The new schedule shares the member ids of the old one; the classes dropped from it move to
+ * ids of their own, so the ids of their members are freed for the live schedule.
+ * When the classes are filled by a CheckInService, the copy and the move to other ids run in
+ * line with the check-ins of each class, and check-ins still made for a moved class are passed
+ * on to the class at its new time, so no enrollment is lost to a reload. Without one, the
+ * classes must not be changed while a reload runs.
+ * The reloader can also watch the file and reload it every time it is saved.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class ScheduleReloader implements AutoCloseable {
+    private static final long SETTLE_MILLIS = 200; //quiet time after a change before reloading
+
+    private final File file;
+    private final AtomicReference<Schedule> current;
+    private volatile CheckInService checkIns; //fills the classes; null if they are only changed between reloads
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * Parameterized constructor requires 2 parameters to create a ScheduleReloader
+     *
+     * @param file     the schedule file
+     * @param schedule the live schedule, usually loaded from the file
+     */
+    public ScheduleReloader(File file, Schedule schedule) {
+        this.file = file;
+        this.current = new AtomicReference<>(schedule);
+    }
+
+    /**
+     * Loads a schedule file and creates a reloader for it
+     *
+     * @param file the schedule file
+     * @return a reloader holding the loaded schedule
+     * @throws IOException when the file cannot be read
+     */
+    public static ScheduleReloader load(File file) throws IOException {
+        Schedule schedule = new Schedule();
+        schedule.load(file);
+        return new ScheduleReloader(file, schedule);
+    }
+
+    /**
+     * A getter method returns the live schedule. The returned schedule is never changed by a
+     * reload, which swaps in a new one instead
+     *
+     * @return the live schedule
+     */
+    public Schedule getSchedule() {
+        return current.get();
+    }
+
+    /**
+     * A setter method sets the service checking members into the live classes, so reloads
+     * change the classes in line with its check-ins
+     *
+     * @param checkIns the service filling the classes; null if none does
+     */
+    public void setCheckInService(CheckInService checkIns) {
+        this.checkIns = checkIns;
+    }
+
+    /**
+     * Reads the schedule file again and swaps in a schedule with only the differences applied.
+     * Listeners registered on the added, changed or removed classes are not moved over;
+     * the returned diff tells the caller which classes to watch and which to stop watching.
+     * Returns once every moved class is copied and every dropped class is detached
+     *
+     * @return the classes added, removed and changed
+     * @throws IOException              when the file cannot be read
+     * @throws IllegalArgumentException when a line names an unknown class, instructor, time or studio;
+     *                                  the live schedule is left as it was
+     */
+    public synchronized ScheduleDiff reload() throws IOException {
+        Schedule live = current.get();
+        Schedule parsed = new Schedule(live.getIds());
+        parsed.load(file);
+        ScheduleDiff diff = new ScheduleDiff();
+        IdentityHashMap<FitnessClass, Boolean> kept = new IdentityHashMap<>();
+        FitnessClass[] next = new FitnessClass[parsed.getNumClasses()];
+        for (int i = 0; i < parsed.getNumClasses(); i++) {
+            FitnessClass wanted = parsed.getClasses()[i];
+            FitnessClass same = live.findClass(wanted.getClassInfo(), wanted.getInstructor(),
+                    wanted.getStudio(), wanted.getTime());
+            if (same != null && !kept.containsKey(same)) {
+                kept.put(same, Boolean.TRUE);
+                next[i] = same;
+            }
+        }
+        for (int i = 0; i < parsed.getNumClasses(); i++) {
+            if (next[i] == null) {
+                next[i] = parsed.getClasses()[i];
+                FitnessClass moved = findMoved(live, next[i], kept);
+                if (moved == null) {
+                    diff.addAdded(next[i]);
+                } else {
+                    kept.put(moved, Boolean.TRUE);
+                    diff.addChanged(next[i], moved);
+                }
+            }
+        }
+        for (int i = 0; i < live.getNumClasses(); i++) {
+            if (!kept.containsKey(live.getClasses()[i])) {
+                diff.addRemoved(live.getClasses()[i]);
+            }
+        }
+        if (diff.isEmpty() && next.length == live.getNumClasses()) {
+            return diff;
+        }
+        Schedule schedule = new Schedule(live.getIds());
+        for (FitnessClass fitnessClass : next) {
+            schedule.add(fitnessClass);
+        }
+        List<CompletableFuture<Void>> changes = new ArrayList<>();
+        for (int i = 0; i < diff.getChanged().size(); i++) {
+            FitnessClass from = diff.getReplaced().get(i);
+            FitnessClass to = diff.getChanged().get(i);
+            changes.add(runInLine(from, () -> {
+                copyEnrollment(from, to);
+                from.setReplacement(to);
+            }));
+        }
+        await(changes);
+        current.set(schedule);
+        changes.clear();
+        for (FitnessClass dropped : diff.getRemoved()) {
+            changes.add(runInLine(dropped, () -> dropped.useIds(new MemberIds())));
+        }
+        for (FitnessClass dropped : diff.getReplaced()) {
+            changes.add(runInLine(dropped, () -> dropped.useIds(new MemberIds())));
+        }
+        await(changes);
+        return diff;
+    }
+
+    /**
+     * Watches the schedule file on a background thread and reloads it every time it changes,
+     * ignoring reloads that fail
+     *
+     * @param onReload called with the diff of every reload that changed the schedule
+     * @throws IOException when the directory of the file cannot be watched
+     */
+    public void watch(Consumer<ScheduleDiff> onReload) throws IOException {
+        watch(onReload, e -> { });
+    }
+
+    /**
+     * Watches the schedule file on a background thread and reloads it every time it changes.
+     * The reload waits until the file has not changed for a short while, so an editor saving
+     * in several writes triggers one reload. An empty file is skipped; a file that cannot be read
+     * or parsed is reported, and the live schedule is kept until the next change
+     *
+     * @param onReload called with the diff of every reload that changed the schedule
+     * @param onError  called with the exception of every reload that failed
+     * @throws IOException when the directory of the file cannot be watched
+     */
+    public synchronized void watch(Consumer<ScheduleDiff> onReload, Consumer<Exception> onError) throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        Path path = file.getAbsoluteFile().toPath();
+        watchService = FileSystems.getDefault().newWatchService();
+        path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = Thread.ofPlatform().daemon().name("schedule-reloader").start(() -> watchLoop(path, onReload, onError));
+    }
+
+    /**
+     * Stops watching the schedule file
+     *
+     * @throws IOException when the watch service cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+            watcher = null;
+        }
+    }
+
+    /**
+     * Helper method run by the watcher thread: waits for changes to the file and reloads it
+     *
+     * @param path     the absolute path of the schedule file
+     * @param onReload called with the diff of every reload that changed the schedule
+     * @param onError  called with the exception of every reload that failed
+     */
+    private void watchLoop(Path path, Consumer<ScheduleDiff> onReload, Consumer<Exception> onError) {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                if (!isChanged(service.take(), path)) {
+                    continue;
+                }
+                WatchKey key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    isChanged(key, path);
+                    key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                reloadAndReport(onReload, onError);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            //closed by close(); stop watching
+        }
+    }
+
+    /**
+     * Helper method to take the events of a watch key and check if any is about the schedule file
+     *
+     * @param key  the signalled key
+     * @param path the absolute path of the schedule file
+     * @return true if the schedule file was created or modified; false otherwise
+     */
+    private static boolean isChanged(WatchKey key, Path path) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (path.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Helper method to reload from the watcher thread, skipping an empty file and reporting
+     * a reload that fails instead of stopping the watcher
+     *
+     * @param onReload called with the diff if the reload changed the schedule
+     * @param onError  called with the exception if the reload failed
+     */
+    private void reloadAndReport(Consumer<ScheduleDiff> onReload, Consumer<Exception> onError) {
+        if (file.length() == 0) {
+            return;
+        }
+        ScheduleDiff diff;
+        try {
+            diff = reload();
+        } catch (IOException | RuntimeException e) {
+            //keep the live schedule; the next change to the file triggers another reload
+            onError.accept(e);
+            return;
+        }
+        if (!diff.isEmpty()) {
+            onReload.accept(diff);
+        }
+    }
+
+    /**
+     * Helper method to run a change to a live class in line with its check-ins, or right away
+     * when no service fills the classes
+     *
+     * @param fitnessClass the class to change
+     * @param change       the change to run
+     * @return a future completed once the change has run
+     */
+    private CompletableFuture<Void> runInLine(FitnessClass fitnessClass, Runnable change) {
+        CheckInService service = checkIns;
+        if (service == null) {
+            change.run();
+            return CompletableFuture.completedFuture(null);
+        }
+        return service.runExclusive(fitnessClass, change);
+    }
+
+    /**
+     * Helper method to wait for changes run in line with check-ins
+     *
+     * @param changes the futures of the changes
+     * @throws RuntimeException when a change threw
+     */
+    private static void await(List<CompletableFuture<Void>> changes) {
+        try {
+            CompletableFuture.allOf(changes.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Helper method to find the live class that a new class moved to a new time
+     *
+     * @param live         the live schedule
+     * @param fitnessClass the new class
+     * @param kept         the live classes already carried over
+     * @return a live class with the same type, instructor and studio that is not carried over
+     * and whose time is not in the new schedule; null if there is none
+     */
+    private static FitnessClass findMoved(Schedule live, FitnessClass fitnessClass,
+                                          IdentityHashMap<FitnessClass, Boolean> kept) {
+        for (Time time : Time.values()) {
+            FitnessClass candidate = live.findClass(fitnessClass.getClassInfo(), fitnessClass.getInstructor(),
+                    fitnessClass.getStudio(), time);
+            if (candidate != null && !kept.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method to copy the members and guests of a class into its replacement
+     *
+     * @param from the class at its old time
+     * @param to   the class at its new time
+     */
+    private static void copyEnrollment(FitnessClass from, FitnessClass to) {
+        if (from.getNumMembers() > 0) {
+            Member[] members = from.getMembers().getMembers();
+            for (int i = 0; i < from.getNumMembers(); i++) {
+                to.addMember(members[i]);
+            }
+        }
+        if (from.getNumGuests() > 0) {
+            Member[] guests = from.getGuests().getMembers();
+            for (int i = 0; i < from.getNumGuests(); i++) {
+                to.addGuest(guests[i]);
+            }
+        }
+    }
+}
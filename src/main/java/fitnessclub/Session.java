@@ -0,0 +1,139 @@
+package fitnessclub;
+
+/**
+ * A fitness class held on a given date. Each session has its own FitnessClass, so the
+ * members and guests enrolled are kept per date. The session starts at the time of its
+ * class and lasts a number of minutes; its start and end are also kept as minutes since
+ * midnight of 1/1/1970, so sessions on different dates compare as plain numbers.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class Session implements Comparable<Session> {
+    public static final int DEFAULT_MINUTES = 60;
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final FitnessClass fitnessClass;
+    private final Date date;
+    private final int minutes;
+    private final long start; //minutes since 1/1/1970
+    private final long end; //minutes since 1/1/1970, exclusive
+
+    /**
+     * Parameterized constructor requires 2 parameters to create a Session
+     * lasting DEFAULT_MINUTES
+     *
+     * @param fitnessClass the class held in the session
+     * @param date         the date of the session
+     */
+    public Session(FitnessClass fitnessClass, Date date) {
+        this(fitnessClass, date, DEFAULT_MINUTES);
+    }
+
+    /**
+     * Parameterized constructor requires 3 parameters to create a Session
+     *
+     * @param fitnessClass the class held in the session
+     * @param date         the date of the session
+     * @param minutes      how long the session lasts, in minutes
+     */
+    public Session(FitnessClass fitnessClass, Date date, int minutes) {
+        this.fitnessClass = fitnessClass;
+        this.date = date;
+        this.minutes = minutes;
+        this.start = minuteOf(date, fitnessClass.getTime());
+        this.end = start + minutes;
+    }
+
+    /**
+     * Returns the minutes since midnight of 1/1/1970 at a time on a date
+     *
+     * @param date the date
+     * @param time the time of day
+     * @return the minutes from the epoch to the time on that date
+     */
+    public static long minuteOf(Date date, Time time) {
+        return (long) date.toEpochDay() * MINUTES_PER_DAY + time.getMinuteOfDay();
+    }
+
+    /**
+     * A getter method returns the fitness class held in the session
+     *
+     * @return the fitness class, with the members and guests of this date
+     */
+    public FitnessClass getFitnessClass() {
+        return fitnessClass;
+    }
+
+    /**
+     * A getter method returns the date of the session
+     *
+     * @return the date
+     */
+    public Date getDate() {
+        return date;
+    }
+
+    /**
+     * A getter method returns how long the session lasts
+     *
+     * @return the length of the session in minutes
+     */
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * A getter method returns when the session starts
+     *
+     * @return the minutes from 1/1/1970 to the start of the session
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * A getter method returns when the session ends
+     *
+     * @return the minutes from 1/1/1970 to the end of the session, exclusive
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Determines if the session overlaps a period of time
+     *
+     * @param from the first minute of the period, since 1/1/1970
+     * @param to   the minute just past the period, since 1/1/1970
+     * @return true if the session is running at some minute of the period; false otherwise
+     */
+    public boolean overlaps(long from, long to) {
+        return start < to && end > from;
+    }
+
+    /**
+     * Compares two sessions by start, then by end
+     *
+     * @param o the session to be compared
+     * @return a negative number, zero, or a positive number as this session starts
+     * earlier, at the same time, or later than the specified session
+     */
+    @Override
+    public int compareTo(Session o) {
+        int byStart = Long.compare(this.start, o.start);
+        if (byStart != 0) {
+            return byStart;
+        }
+        return Long.compare(this.end, o.end);
+    }
+
+    /**
+     * Returns a textual representation of the session
+     *
+     * @return the date followed by the class details
+     */
+    @Override
+    public String toString() {
+        return date + " " + fitnessClass;
+    }
+}
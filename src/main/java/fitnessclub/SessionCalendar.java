@@ -0,0 +1,295 @@
+package fitnessclub;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Holds the dated sessions of the fitness club across weeks and months. Sessions are indexed
+ * by start time per studio and per instructor, so the sessions running at a studio in a period
+ * and the double bookings of a new session are found in logarithmic time plus the number of
+ * sessions returned, instead of a scan of every session. As in Schedule and BookingEngine,
+ * only an instructor can be double-booked; a studio can hold several sessions at once.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class SessionCalendar {
+    private final EnumMap<Location, IntervalIndex> byStudio;
+    private final EnumMap<Instructor, IntervalIndex> byInstructor;
+    private int size;
+
+    /**
+     * Default constructor/no-argument constructor.
+     * Creates an empty calendar
+     */
+    public SessionCalendar() {
+        byStudio = new EnumMap<>(Location.class);
+        for (Location location : Location.values()) {
+            byStudio.put(location, new IntervalIndex());
+        }
+        byInstructor = new EnumMap<>(Instructor.class);
+        for (Instructor instructor : Instructor.values()) {
+            byInstructor.put(instructor, new IntervalIndex());
+        }
+        size = 0;
+    }
+
+    /**
+     * Creates a calendar holding the classes of a daily schedule on every day of a period.
+     * Each session gets its own FitnessClass with the details of the scheduled class
+     *
+     * @param schedule the classes held every day
+     * @param first    the first day of the period
+     * @param days     the number of days in the period
+     * @return the calendar of the sessions
+     */
+    public static SessionCalendar of(Schedule schedule, Date first, int days) {
+        SessionCalendar calendar = new SessionCalendar();
+        int firstDay = first.toEpochDay();
+        for (int day = firstDay; day < firstDay + days; day++) {
+            Date date = Date.ofEpochDay(day);
+            for (int i = 0; i < schedule.getNumClasses(); i++) {
+                FitnessClass scheduled = schedule.getClasses()[i];
+                calendar.add(new Session(new FitnessClass(scheduled.getClassInfo(), scheduled.getInstructor(),
+                        scheduled.getStudio(), scheduled.getTime()), date));
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * A getter method returns the number of sessions in the calendar
+     *
+     * @return the number of sessions
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Adds a session to the calendar, even if it is double-booked
+     *
+     * @param session the session to add
+     */
+    public void add(Session session) {
+        byStudio.get(session.getFitnessClass().getStudio()).add(session);
+        byInstructor.get(session.getFitnessClass().getInstructor()).add(session);
+        size++;
+    }
+
+    /**
+     * Adds a session to the calendar only if its instructor has no other session
+     * at any time during it
+     *
+     * @param session the session to add
+     * @return true if the session is added; false if it would be double-booked
+     */
+    public boolean addIfFree(Session session) {
+        if (!conflicts(session).isEmpty()) {
+            return false;
+        }
+        add(session);
+        return true;
+    }
+
+    /**
+     * Removes a session from the calendar
+     *
+     * @param session the session to remove
+     * @return true if the session was in the calendar and is removed; false otherwise
+     */
+    public boolean remove(Session session) {
+        if (!byStudio.get(session.getFitnessClass().getStudio()).remove(session)) {
+            return false;
+        }
+        byInstructor.get(session.getFitnessClass().getInstructor()).remove(session);
+        size--;
+        return true;
+    }
+
+    /**
+     * Finds the sessions that double-book the instructor of a session
+     *
+     * @param session the session to check, which does not need to be in the calendar
+     * @return the other sessions with the same instructor that overlap it, in order of start
+     */
+    public List<Session> conflicts(Session session) {
+        ArrayList<Session> conflicts = new ArrayList<>();
+        byInstructor.get(session.getFitnessClass().getInstructor())
+                .overlapping(session.getStart(), session.getEnd(), conflicts);
+        conflicts.remove(session);
+        return conflicts;
+    }
+
+    /**
+     * Determines if an instructor has no session during a period
+     *
+     * @param instructor the instructor
+     * @param from       the first minute of the period, since 1/1/1970
+     * @param to         the minute just past the period, since 1/1/1970
+     * @return true if the instructor is free for the whole period; false otherwise
+     */
+    public boolean isFree(Instructor instructor, long from, long to) {
+        return byInstructor.get(instructor).isFree(from, to);
+    }
+
+    /**
+     * Determines if a studio has no session during a period
+     *
+     * @param studio the studio
+     * @param from   the first minute of the period, since 1/1/1970
+     * @param to     the minute just past the period, since 1/1/1970
+     * @return true if the studio is free for the whole period; false otherwise
+     */
+    public boolean isFree(Location studio, long from, long to) {
+        return byStudio.get(studio).isFree(from, to);
+    }
+
+    /**
+     * Finds the sessions running at a studio at a time on a date,
+     * such as what is on at EDISON next Tuesday evening
+     *
+     * @param studio the studio
+     * @param date   the date
+     * @param time   the time of day
+     * @return the sessions running at that minute, in order of start
+     */
+    public List<Session> at(Location studio, Date date, Time time) {
+        long minute = Session.minuteOf(date, time);
+        return between(studio, minute, minute + 1);
+    }
+
+    /**
+     * Finds the sessions at a studio on a date
+     *
+     * @param studio the studio
+     * @param date   the date
+     * @return the sessions running at some time that day, in order of start
+     */
+    public List<Session> on(Location studio, Date date) {
+        long midnight = (long) date.toEpochDay() * Session.MINUTES_PER_DAY;
+        return between(studio, midnight, midnight + Session.MINUTES_PER_DAY);
+    }
+
+    /**
+     * Finds the sessions at a studio during a period
+     *
+     * @param studio the studio
+     * @param from   the first minute of the period, since 1/1/1970
+     * @param to     the minute just past the period, since 1/1/1970
+     * @return the sessions running at some minute of the period, in order of start
+     */
+    public List<Session> between(Location studio, long from, long to) {
+        ArrayList<Session> sessions = new ArrayList<>();
+        byStudio.get(studio).overlapping(from, to, sessions);
+        return sessions;
+    }
+
+    /**
+     * Finds the sessions of an instructor during a period
+     *
+     * @param instructor the instructor
+     * @param from       the first minute of the period, since 1/1/1970
+     * @param to         the minute just past the period, since 1/1/1970
+     * @return the sessions running at some minute of the period, in order of start
+     */
+    public List<Session> between(Instructor instructor, long from, long to) {
+        ArrayList<Session> sessions = new ArrayList<>();
+        byInstructor.get(instructor).overlapping(from, to, sessions);
+        return sessions;
+    }
+
+    /**
+     * Sessions sorted by start time. Since no session is longer than the longest one added,
+     * the sessions overlapping a period all start between the period's start minus that length
+     * and its end, which is a single range of the sorted map
+     */
+    private static class IntervalIndex {
+        private final TreeMap<Long, ArrayList<Session>> byStart;
+        private int maxMinutes; //length of the longest session ever added
+
+        /**
+         * Default constructor/no-argument constructor.
+         * Creates an empty index
+         */
+        IntervalIndex() {
+            byStart = new TreeMap<>();
+            maxMinutes = 0;
+        }
+
+        /**
+         * Adds a session
+         *
+         * @param session the session to add
+         */
+        void add(Session session) {
+            byStart.computeIfAbsent(session.getStart(), key -> new ArrayList<>(1)).add(session);
+            maxMinutes = Math.max(maxMinutes, session.getMinutes());
+        }
+
+        /**
+         * Removes a session
+         *
+         * @param session the session to remove
+         * @return true if the session was in the index; false otherwise
+         */
+        boolean remove(Session session) {
+            ArrayList<Session> sessions = byStart.get(session.getStart());
+            if (sessions == null || !sessions.remove(session)) {
+                return false;
+            }
+            if (sessions.isEmpty()) {
+                byStart.remove(session.getStart());
+            }
+            return true;
+        }
+
+        /**
+         * Adds the sessions overlapping a period to a list, in order of start
+         *
+         * @param from   the first minute of the period
+         * @param to     the minute just past the period
+         * @param result the list to add to
+         */
+        void overlapping(long from, long to, List<Session> result) {
+            for (Map.Entry<Long, ArrayList<Session>> start : candidates(from, to).entrySet()) {
+                for (Session session : start.getValue()) {
+                    if (session.overlaps(from, to)) {
+                        result.add(session);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Determines if no session overlaps a period
+         *
+         * @param from the first minute of the period
+         * @param to   the minute just past the period
+         * @return true if no session overlaps the period; false otherwise
+         */
+        boolean isFree(long from, long to) {
+            for (ArrayList<Session> sessions : candidates(from, to).values()) {
+                for (Session session : sessions) {
+                    if (session.overlaps(from, to)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Helper method to return the sessions that could overlap a period
+         *
+         * @param from the first minute of the period
+         * @param to   the minute just past the period
+         * @return the sessions starting late enough to still run at from and before to
+         */
+        private Map<Long, ArrayList<Session>> candidates(long from, long to) {
+            return byStart.subMap(from - maxMinutes, false, to, false);
+        }
+    }
+}
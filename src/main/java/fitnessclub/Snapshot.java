@@ -0,0 +1,387 @@
+package fitnessclub;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Saves and restores the state of the studio in a compact, versioned binary file:
+ * the member list, the schedule, and the members and guests enrolled in each class.
+ * Names are written once in a shared table, dates as packed ints, and enrollments
+ * as indexes into the member table, so restoring is a single pass over a mapped file.
+ * The header holds the sequence number of the last Journal line whose change is in the
+ * snapshot, so replay only applies the lines written after it.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class Snapshot {
+    private static final int MAGIC = 0x46435331; //"FCS1"
+    private static final short VERSION = 2;
+    private static final short VERSION_WITHOUT_SEQ = 1;
+    private static final int DAY_BITS = 7;
+    private static final int MONTH_BITS = 7;
+    private static final int DAY_MASK = (1 << DAY_BITS) - 1;
+    private static final int MONTH_MASK = (1 << MONTH_BITS) - 1;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MIN_NAME_BYTES = Short.BYTES;
+    private static final int MEMBER_BYTES = 4 * Integer.BYTES + 2 * Byte.BYTES + Integer.BYTES;
+    private static final int MIN_CLASS_BYTES = 4 * Byte.BYTES + 2 * Integer.BYTES;
+    private static final Location[] LOCATIONS = Location.values();
+    private static final Offer[] OFFERS = Offer.values();
+    private static final Instructor[] INSTRUCTORS = Instructor.values();
+    private static final Time[] TIMES = Time.values();
+
+    private final MemberList members;
+    private final Schedule schedule;
+    private final long lastSeq;
+
+    /**
+     * Parameterized constructor requires 3 parameters to create a Snapshot
+     *
+     * @param members  the restored member list
+     * @param schedule the restored schedule with its enrollments
+     * @param lastSeq  the sequence number of the last journaled change in the snapshot
+     */
+    private Snapshot(MemberList members, Schedule schedule, long lastSeq) {
+        this.members = members;
+        this.schedule = schedule;
+        this.lastSeq = lastSeq;
+    }
+
+    /**
+     * A getter method returns the restored member list
+     *
+     * @return the member list
+     */
+    public MemberList getMembers() {
+        return members;
+    }
+
+    /**
+     * A getter method returns the restored schedule
+     *
+     * @return the schedule, with the members and guests enrolled in each class
+     */
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * A getter method returns the sequence number of the last journaled change in the snapshot
+     *
+     * @return the sequence number to replay the journal after; 0 for a snapshot saved without one
+     */
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Writes the member list, the schedule and the class enrollments to a file.
+     * Members enrolled in a class are written once and shared with the member list;
+     * an enrolled member that is not in the list is written after the list members.
+     * The snapshot is written and synced to a temporary file next to it, then renamed over
+     * the old one, so a crash while saving leaves the previous snapshot in place
+     *
+     * @param file     the file to write, replacing any existing snapshot
+     * @param members  the member list to save
+     * @param schedule the schedule to save
+     * @param lastSeq  the sequence number of the last journaled change the state holds, from
+     *                 Journal.getLastSeq; 0 if the state is not journaled
+     * @throws IOException when an I/O error occurs when trying to write the file
+     * @throws IllegalArgumentException when a member is not a Basic, Family, or Premium member
+     *                                  or a view over a row of a store; the previous snapshot is kept
+     */
+    public static void save(File file, MemberList members, Schedule schedule, long lastSeq) throws IOException {
+        ArrayList<Member> table = new ArrayList<>(members.getSize());
+        HashMap<Profile, Integer> tableIndex = new HashMap<>();
+        for (int i = 0; i < members.getSize(); i++) {
+            tableIndex.put(members.getMembers()[i].getProfile(), table.size());
+            table.add(members.getMembers()[i]);
+        }
+        int numListed = table.size();
+        for (int i = 0; i < schedule.getNumClasses(); i++) {
+            FitnessClass fitnessClass = schedule.getClasses()[i];
+            if (fitnessClass.getNumMembers() > 0) {
+                addToTable(fitnessClass.getMembers(), table, tableIndex);
+            }
+            if (fitnessClass.getNumGuests() > 0) {
+                addToTable(fitnessClass.getGuests(), table, tableIndex);
+            }
+        }
+
+        ArrayList<String> names = new ArrayList<>();
+        HashMap<String, Integer> nameIndex = new HashMap<>();
+        for (Member member : table) {
+            addName(member.getProfile().getFname(), names, nameIndex);
+            addName(member.getProfile().getLname(), names, nameIndex);
+        }
+
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream stream = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_BYTES))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(lastSeq);
+            out.writeInt(names.size());
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(numListed);
+            out.writeInt(table.size() - numListed);
+            for (Member member : table) {
+                writeMember(out, member, nameIndex);
+            }
+            out.writeInt(schedule.getNumClasses());
+            for (int i = 0; i < schedule.getNumClasses(); i++) {
+                FitnessClass fitnessClass = schedule.getClasses()[i];
+                out.writeByte(fitnessClass.getClassInfo().ordinal());
+                out.writeByte(fitnessClass.getInstructor().ordinal());
+                out.writeByte(fitnessClass.getStudio().ordinal());
+                out.writeByte(fitnessClass.getTime().ordinal());
+                if (fitnessClass.getNumMembers() > 0) {
+                    writeEnrollment(out, fitnessClass.getMembers(), tableIndex);
+                } else {
+                    out.writeInt(0);
+                }
+                if (fitnessClass.getNumGuests() > 0) {
+                    writeEnrollment(out, fitnessClass.getGuests(), tableIndex);
+                } else {
+                    out.writeInt(0);
+                }
+            }
+            out.flush();
+            stream.getChannel().force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a member list, schedule and class enrollments back from a file written by save,
+     * with the journal sequence number saved with them
+     *
+     * @param file the file to read
+     * @return the restored member list and schedule
+     * @throws IOException when the file cannot be read, is not a snapshot of a supported version,
+     *                     is truncated or corrupt, or holds classes that book an instructor twice
+     *                     at the same time
+     */
+    public static Snapshot restore(File file) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("snapshot too large: " + channel.size() + " bytes");
+            }
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.remaining() < Integer.BYTES + Short.BYTES || in.getInt() != MAGIC) {
+            throw new IOException(file + " is not a member snapshot");
+        }
+        short version = in.getShort();
+        if (version != VERSION && version != VERSION_WITHOUT_SEQ) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        try {
+            long lastSeq = version == VERSION ? in.getLong() : 0;
+            return read(in, lastSeq);
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is truncated or corrupt at byte " + in.position(), e);
+        }
+    }
+
+    /**
+     * Helper method to read the body of a snapshot, after its header.
+     * A truncated body, or an index past the end of a table, throws a RuntimeException
+     * that restore reports as a corrupt file
+     *
+     * @param in      the buffer to read from, positioned after the header
+     * @param lastSeq the sequence number read from the header
+     * @return the restored member list and schedule
+     * @throws IOException when a count is larger than the rest of the file could hold,
+     *                     or the classes book an instructor twice at the same time
+     */
+    private static Snapshot read(ByteBuffer in, long lastSeq) throws IOException {
+        String[] names = new String[readCount(in, MIN_NAME_BYTES)];
+        byte[] scratch = new byte[Short.MAX_VALUE];
+        for (int i = 0; i < names.length; i++) {
+            int length = in.getShort() & 0xFFFF;
+            if (length > scratch.length) {
+                scratch = new byte[length];
+            }
+            in.get(scratch, 0, length);
+            names[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        int numListed = readCount(in, MEMBER_BYTES);
+        Member[] table = new Member[numListed + readCount(in, MEMBER_BYTES)];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = readMember(in, names);
+        }
+        MemberList members = new MemberList(numListed);
+        members.addAll(table, numListed);
+
+        Schedule schedule = new Schedule();
+        int numClasses = readCount(in, MIN_CLASS_BYTES);
+        for (int i = 0; i < numClasses; i++) {
+            Offer classInfo = OFFERS[in.get()];
+            Instructor instructor = INSTRUCTORS[in.get()];
+            Location studio = LOCATIONS[in.get()];
+            Time time = TIMES[in.get()];
+            FitnessClass fitnessClass = new FitnessClass(classInfo, instructor, studio, time);
+            if (!schedule.add(fitnessClass)) {
+                throw new IOException("Snapshot books " + instructor + " twice at " + time + ": "
+                        + schedule.getBookings().conflictOf(fitnessClass) + " and " + fitnessClass);
+            }
+            int numMembers = readCount(in, Integer.BYTES);
+            for (int m = 0; m < numMembers; m++) {
+                fitnessClass.addMember(table[in.getInt()]);
+            }
+            int numGuests = readCount(in, Integer.BYTES);
+            for (int g = 0; g < numGuests; g++) {
+                fitnessClass.addGuest(table[in.getInt()]);
+            }
+        }
+        return new Snapshot(members, schedule, lastSeq);
+    }
+
+    /**
+     * Helper method to read the number of entries in a section, checking that the rest of
+     * the file is long enough to hold them before anything is allocated for them
+     *
+     * @param in        the buffer to read from
+     * @param entrySize the fewest bytes one entry takes
+     * @return the number of entries
+     * @throws IOException when the count is negative or the entries cannot fit in the file
+     */
+    private static int readCount(ByteBuffer in, int entrySize) throws IOException {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining() / entrySize) {
+            throw new IOException("snapshot is truncated or corrupt: " + count
+                    + " entries at byte " + (in.position() - Integer.BYTES));
+        }
+        return count;
+    }
+
+    /**
+     * Helper method to add the members of a class list that are not yet in the member table
+     *
+     * @param list       the members or guests of a class
+     * @param table      the members to write, in order
+     * @param tableIndex the position of each profile in the table
+     */
+    private static void addToTable(MemberList list, ArrayList<Member> table, HashMap<Profile, Integer> tableIndex) {
+        for (int i = 0; i < list.getSize(); i++) {
+            Member member = list.getMembers()[i];
+            if (tableIndex.putIfAbsent(member.getProfile(), table.size()) == null) {
+                table.add(member);
+            }
+        }
+    }
+
+    /**
+     * Helper method to add a name to the name table if it is not already there
+     *
+     * @param name      the name to add
+     * @param names     the names to write, in order
+     * @param nameIndex the position of each name in the table
+     */
+    private static void addName(String name, ArrayList<String> names, HashMap<String, Integer> nameIndex) {
+        if (nameIndex.putIfAbsent(name, names.size()) == null) {
+            names.add(name);
+        }
+    }
+
+    /**
+     * Helper method to write one member as a fixed-size record
+     *
+     * @param out       the stream to write to
+     * @param member    the Basic, Family, or Premium member, or a view over a row of a store
+     * @param nameIndex the position of each name in the name table
+     * @throws IOException when an I/O error occurs when writing
+     * @throws IllegalArgumentException when the member is of any other type
+     */
+    private static void writeMember(DataOutputStream out, Member member, HashMap<String, Integer> nameIndex)
+            throws IOException {
+        Profile profile = member.getProfile();
+        out.writeInt(nameIndex.get(profile.getFname()));
+        out.writeInt(nameIndex.get(profile.getLname()));
+        out.writeInt(packDate(profile.getDob()));
+        out.writeInt(packDate(member.getExpire()));
+        out.writeByte(member.getHomeStudio().ordinal());
+        out.writeByte(MemberStore.typeOf(member));
+        out.writeInt(MemberStore.counterOf(member));
+    }
+
+    /**
+     * Helper method to read one member record
+     *
+     * @param in    the buffer to read from
+     * @param names the name table
+     * @return the Basic, Family, or Premium member of the record
+     */
+    private static Member readMember(ByteBuffer in, String[] names) {
+        String fname = names[in.getInt()];
+        String lname = names[in.getInt()];
+        Profile profile = new Profile(fname, lname, unpackDate(in.getInt()));
+        Date expire = unpackDate(in.getInt());
+        Location homeStudio = LOCATIONS[in.get()];
+        byte type = in.get();
+        int counter = in.getInt();
+        if (type == MemberStore.BASIC) {
+            return new Basic(profile, expire, homeStudio, counter);
+        }
+        if (type == MemberStore.FAMILY) {
+            return new Family(profile, expire, homeStudio, counter != 0);
+        }
+        return new Premium(profile, expire, homeStudio, counter);
+    }
+
+    /**
+     * Helper method to write the members or guests of a class as member table indexes
+     *
+     * @param out        the stream to write to
+     * @param list       the members or guests of the class
+     * @param tableIndex the position of each profile in the member table
+     * @throws IOException when an I/O error occurs when writing
+     */
+    private static void writeEnrollment(DataOutputStream out, MemberList list, HashMap<Profile, Integer> tableIndex)
+            throws IOException {
+        out.writeInt(list.getSize());
+        for (int i = 0; i < list.getSize(); i++) {
+            out.writeInt(tableIndex.get(list.getMembers()[i].getProfile()));
+        }
+    }
+
+    /**
+     * Helper method to pack a date into one int, keeping the exact month, day and year
+     *
+     * @param date the date to pack
+     * @return the packed date
+     */
+    private static int packDate(Date date) {
+        return (date.getYear() << (MONTH_BITS + DAY_BITS)) | (date.getMonth() << DAY_BITS) | date.getDay();
+    }
+
+    /**
+     * Helper method to unpack a date packed by packDate
+     *
+     * @param packed the packed date
+     * @return the date
+     */
+    private static Date unpackDate(int packed) {
+        return new Date((packed >> DAY_BITS) & MONTH_MASK, packed & DAY_MASK, packed >> (MONTH_BITS + DAY_BITS));
+    }
+}
@@ -0,0 +1,210 @@
+package fitnessclub;
+
+/**
+ * A flyweight Member view over one row of a MemberStore.
+ * The view holds no member data of its own; it bills, formats and compares straight from
+ * the columns of the store, and its guest pass and class counters write the counter column.
+ * It can be moved to another row to walk the store without allocating. A Profile or Date is
+ * only built when getProfile or getExpire is called, once per row the view is on.
+ * Like the store, a view is not safe to use from several threads at once.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
+public class StoredMember extends Member {
+    private final MemberStore store;
+    private int index;
+    private Profile profile; //built from the row when first asked for; null until then
+    private Date expire; //built from the row when first asked for; null until then
+
+    /**
+     * Parameterized constructor requires 2 parameters to create a view over a row
+     *
+     * @param store the store holding the member
+     * @param index the row index of the member
+     */
+    public StoredMember(MemberStore store, int index) {
+        super(null, null, null);
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * A getter method returns the store the view reads
+     *
+     * @return the store holding the member
+     */
+    public MemberStore getStore() {
+        return store;
+    }
+
+    /**
+     * A getter method returns the row the view is over
+     *
+     * @return the row index of the member
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Moves the view to another row of the same store
+     *
+     * @param index the row index of the member to view
+     */
+    public void moveTo(int index) {
+        if (index != this.index) {
+            this.index = index;
+            profile = null;
+            expire = null;
+        }
+    }
+
+    /**
+     * Getter method returns the profile of the member
+     *
+     * @return the profile built from the row, shared until the view moves
+     */
+    @Override
+    public Profile getProfile() {
+        if (profile == null) {
+            profile = store.getProfile(index);
+        }
+        return profile;
+    }
+
+    /**
+     * Getter method returns the expiration date of the membership
+     *
+     * @return the date built from the row, shared until the view moves
+     */
+    @Override
+    public Date getExpire() {
+        if (expire == null) {
+            expire = Date.ofEpochDay(store.getExpireEpochDay(index));
+        }
+        return expire;
+    }
+
+    /**
+     * Getter method returns the home studio location of the member
+     *
+     * @return the home studio location of the row
+     */
+    @Override
+    public Location getHomeStudio() {
+        return store.getHomeStudio(index);
+    }
+
+    /**
+     * Calculates the next due membership bill amount for the membership type of the row
+     *
+     * @return the next due bill amount
+     */
+    @Override
+    public double bill() {
+        return store.bill(index);
+    }
+
+    /**
+     * Increments the classes attended by the member of a Basic row
+     *
+     * @throws IllegalStateException when the row is not a Basic membership
+     */
+    public void addClass() {
+        if (store.getType(index) != MemberStore.BASIC) {
+            throw new IllegalStateException("not a Basic membership");
+        }
+        store.addClass(index);
+    }
+
+    /**
+     * Takes one guest pass of a Family or Premium row, writing the counter column
+     *
+     * @return true if a pass was available and is now used; false otherwise
+     */
+    @Override
+    public boolean tryUseGuestPass() {
+        byte type = store.getType(index);
+        if (type == MemberStore.BASIC || store.getCounter(index) == 0) {
+            return false;
+        }
+        if (type == MemberStore.FAMILY) {
+            store.setGuest(index, false);
+        } else {
+            store.useGuestPass(index);
+        }
+        return true;
+    }
+
+    /**
+     * Gives back a guest pass taken with tryUseGuestPass
+     */
+    @Override
+    public void returnGuestPass() {
+        byte type = store.getType(index);
+        if (type == MemberStore.FAMILY) {
+            store.setGuest(index, true);
+        } else if (type == MemberStore.PREMIUM) {
+            store.addGuestPass(index);
+        }
+    }
+
+    /**
+     * Determines if the membership had expired by a given date
+     *
+     * @param today the date to check against, usually today's date
+     * @return true if the membership expired before that date; false otherwise
+     */
+    @Override
+    public boolean isExpired(Date today) {
+        return store.isExpired(index, today.toEpochDay());
+    }
+
+    /**
+     * Determines if two members are equal, comparing the row's names and date of birth
+     * with the other member's without building a profile
+     *
+     * @param obj the Member object to be compared
+     * @return true if both members have the same profiles and are equal; false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Member member && store.equalsProfile(index, member);
+    }
+
+    /**
+     * Returns a hash code consistent with equals, based on the profile of the row
+     *
+     * @return the hash code of the member
+     */
+    @Override
+    public int hashCode() {
+        return getProfile().hashCode();
+    }
+
+    /**
+     * Compares the row with another member by profile, reading the names and date of birth
+     * from the columns
+     *
+     * @param o the Member object to be compared
+     * @return a negative one, zero, or a positive one depending on if this member is
+     * less than, equal to, or greater than the specified member
+     */
+    @Override
+    public int compareTo(Member o) {
+        return store.compareProfile(index, o);
+    }
+
+    /**
+     * Appends the string representation of the member, the same as the Basic, Family,
+     * or Premium object for the row would, formatted from the columns
+     *
+     * @param out   the builder to append to
+     * @param today the date to check the expiration against
+     * @return the builder
+     */
+    @Override
+    public StringBuilder appendTo(StringBuilder out, Date today) {
+        return store.appendTo(index, out, today.toEpochDay());
+    }
+}
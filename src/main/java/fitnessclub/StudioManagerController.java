@@ -1,14 +1,291 @@
 package fitnessclub;
 
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.stage.FileChooser;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Controller of the studio manager window: a member browser over a virtualized table.
+ * Loading, billing, filtering and sorting run as tasks on BackgroundTasks so the window stays
+ * responsive with a million members; the table only builds cells for the rows on screen.
+ * One load or billing run is allowed at a time; it shows its progress and throughput in the
+ * progress bar and the status line, and can be cancelled. Changes made to the loaded members
+ * afterwards, such as check-ins using guest passes, reach the table once per pulse.
+ *
+ * @author Ved Patel, Vivek Manthri
+ */
 public class StudioManagerController {
     @FXML
-    private Label welcomeText;
+    private TableView<Member> memberTable;
+    @FXML
+    private TextField filterField;
+    @FXML
+    private Label statusLabel;
+    @FXML
+    private ProgressBar progressBar;
+    @FXML
+    private Button loadMembersButton;
+    @FXML
+    private Button loadScheduleButton;
+    @FXML
+    private Button billingButton;
+    @FXML
+    private Button cancelButton;
+
+    private BackgroundTasks tasks;
+    private Task<?> job; //the load or billing run in progress; null if none
+    private MemberList members;
+    private Schedule schedule;
+    private MemberTableModel model;
+    private MemberChangeBatcher changes;
+    private HashMap<TableColumn<Member, ?>, Comparator<Member>> columnOrders;
+    private List<String> sortKey; //columns and directions of the sort applied last
+
+    /**
+     * Sets up the table and the filter once the view is loaded
+     */
+    @FXML
+    public void initialize() {
+        tasks = new BackgroundTasks("studio-manager-worker");
+        members = new MemberList();
+        schedule = new Schedule();
+        model = new MemberTableModel(tasks);
+        changes = new MemberChangeBatcher(model);
+        columnOrders = new HashMap<>();
+        sortKey = new ArrayList<>();
+        addColumn("First Name", member -> member.getProfile().getFname(),
+                Comparator.comparing((Member member) -> member.getProfile().getFname(), String.CASE_INSENSITIVE_ORDER));
+        addColumn("Last Name", member -> member.getProfile().getLname(),
+                Comparator.comparing((Member member) -> member.getProfile().getLname(), String.CASE_INSENSITIVE_ORDER));
+        addColumn("DOB", member -> member.getProfile().getDob().toString(),
+                Comparator.comparing((Member member) -> member.getProfile().getDob()));
+        addColumn("Expires", member -> member.getExpire().toString(), Comparator.comparing(Member::getExpire));
+        addColumn("Studio", member -> member.getHomeStudio().name(),
+                Comparator.comparing((Member member) -> member.getHomeStudio().name()));
+        addColumn("County", member -> member.getHomeStudio().getCounty(),
+                Comparator.comparing((Member member) -> member.getHomeStudio().getCounty()));
+        addColumn("Type", member -> member.getClass().getSimpleName(),
+                Comparator.comparing((Member member) -> member.getClass().getSimpleName()));
+        TableColumn<Member, Double> due = new TableColumn<>("Next Due");
+        due.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().bill()));
+        memberTable.getColumns().add(due);
+        columnOrders.put(due, Comparator.comparingDouble(Member::bill));
+
+        memberTable.setSortPolicy(table -> {
+            applySort();
+            return true;
+        });
+        memberTable.setItems(model);
+        filterField.textProperty().addListener((observable, oldText, newText) -> model.setFilter(newText));
+        model.busyProperty().addListener((observable, wasBusy, isBusy) -> showStatus());
+        setJob(null);
+    }
+
+    /**
+     * Lets the user pick a member file and loads it in the background
+     */
+    @FXML
+    protected void onLoadMembersClick() {
+        File file = chooseFile("Open Member File");
+        if (file == null) {
+            return;
+        }
+        RowTask<MemberList> load = new RowTask<>() {
+            @Override
+            protected MemberList compute() throws Exception {
+                updateTitle("Loading " + file.getName());
+                setTotalWork(file.length());
+                MemberList loaded = new MemberList();
+                loaded.loadParallel(file, (bytes, lines) -> addRows(lines, bytes));
+                return loaded;
+            }
+        };
+        load.setOnSucceeded(event -> {
+            members = load.getValue();
+            setJob(null);
+            changes.attach(members);
+            model.setSource(members);
+        });
+        startJob(load, "Could not load " + file.getName());
+    }
+
+    /**
+     * Lets the user pick a schedule file and loads it in the background
+     */
+    @FXML
+    protected void onLoadScheduleClick() {
+        File file = chooseFile("Open Schedule File");
+        if (file == null) {
+            return;
+        }
+        RowTask<Schedule> load = new RowTask<>() {
+            @Override
+            protected Schedule compute() throws Exception {
+                updateTitle("Loading " + file.getName());
+                Schedule loaded = new Schedule();
+                loaded.load(file);
+                addRows(loaded.getNumClasses(), loaded.getNumClasses());
+                return loaded;
+            }
+        };
+        load.setOnSucceeded(event -> {
+            schedule = load.getValue();
+            setJob(null);
+            statusLabel.setText("Loaded " + schedule.getNumClasses() + " classes from " + file.getName());
+        });
+        startJob(load, "Could not load " + file.getName());
+    }
+
+    /**
+     * Bills every member loaded in the background and shows the total due
+     */
+    @FXML
+    protected void onRunBillingClick() {
+        MemberList billed = members;
+        RowTask<BillingRun> billing = new RowTask<>() {
+            @Override
+            protected BillingRun compute() {
+                updateTitle("Billing");
+                setTotalWork(billed.getSize());
+                return BillingRun.run(billed, (member, due) -> addRows(1, 1));
+            }
+        };
+        billing.setOnSucceeded(event -> {
+            BillingRun run = billing.getValue();
+            setJob(null);
+            statusLabel.setText(String.format("Billed %,d members, total due $%,.2f", run.getCount(), run.getTotal()));
+        });
+        startJob(billing, "Billing failed");
+    }
 
+    /**
+     * Cancels the load or billing run in progress
+     */
     @FXML
-    protected void onHelloButtonClick() {
-        welcomeText.setText("Welcome to JavaFX Application!");
+    protected void onCancelClick() {
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Helper method to let the user pick a text file
+     *
+     * @param title the title of the file chooser
+     * @return the file picked; null if the user cancelled
+     */
+    private File chooseFile(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        return chooser.showOpenDialog(memberTable.getScene().getWindow());
+    }
+
+    /**
+     * Helper method to run a load or billing run in the background as the current job.
+     * The caller sets the success handler, which must call setJob(null) first
+     *
+     * @param task          the job to run
+     * @param failedMessage the status shown if the job fails, followed by the error
+     */
+    private void startJob(Task<?> task, String failedMessage) {
+        task.messageProperty().addListener((observable, oldMessage, newMessage) -> showStatus());
+        task.setOnCancelled(event -> {
+            setJob(null);
+            statusLabel.setText("Cancelled: " + task.getTitle());
+        });
+        task.setOnFailed(event -> {
+            setJob(null);
+            statusLabel.setText(failedMessage + ": " + task.getException().getMessage());
+        });
+        setJob(task);
+        tasks.submit(task);
+    }
+
+    /**
+     * Helper method to set the current job, binding the progress bar to it and
+     * allowing a new job only when there is none
+     *
+     * @param task the job in progress; null if none
+     */
+    private void setJob(Task<?> task) {
+        job = task;
+        boolean running = task != null;
+        progressBar.progressProperty().unbind();
+        if (running) {
+            progressBar.progressProperty().bind(task.progressProperty());
+        } else {
+            progressBar.setProgress(0);
+        }
+        progressBar.setVisible(running);
+        loadMembersButton.setDisable(running);
+        loadScheduleButton.setDisable(running);
+        billingButton.setDisable(running);
+        cancelButton.setDisable(!running);
+        showStatus();
+    }
+
+    /**
+     * Helper method to add a text column with the order it sorts by
+     *
+     * @param title the column title
+     * @param text  the text of a member shown in the column
+     * @param order the order of the members when sorting by the column
+     */
+    private void addColumn(String title, Function<Member, String> text, Comparator<Member> order) {
+        TableColumn<Member, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(text.apply(cell.getValue())));
+        memberTable.getColumns().add(column);
+        columnOrders.put(column, order);
+    }
+
+    /**
+     * Helper method to sort the rows by the table's sort columns, in the background,
+     * when the sort columns or their directions changed
+     */
+    private void applySort() {
+        ArrayList<String> key = new ArrayList<>();
+        Comparator<Member> order = null;
+        for (TableColumn<Member, ?> column : memberTable.getSortOrder()) {
+            Comparator<Member> columnOrder = columnOrders.get(column);
+            if (column.getSortType() == TableColumn.SortType.DESCENDING) {
+                columnOrder = columnOrder.reversed();
+            }
+            order = order == null ? columnOrder : order.thenComparing(columnOrder);
+            key.add(column.getText() + " " + column.getSortType());
+        }
+        if (!key.equals(sortKey)) {
+            sortKey = key;
+            model.setComparator(order);
+        }
+    }
+
+    /**
+     * Helper method to show the job in progress, or else the number of members shown,
+     * in the status line
+     */
+    private void showStatus() {
+        if (job != null) {
+            String message = job.getMessage();
+            statusLabel.setText(job.getTitle() + (message.isEmpty() ? "..." : ": " + message));
+        } else if (model.busyProperty().get()) {
+            statusLabel.setText("Updating...");
+        } else {
+            statusLabel.setText(model.size() + " of " + members.getSize() + " members");
+        }
     }
-}
\ No newline at end of file
+}
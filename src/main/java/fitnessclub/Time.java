@@ -25,6 +25,33 @@ public enum Time {
         this.minute = minute;
     }
 
+    /**
+     * A getter method returns the hour of the time
+     *
+     * @return the hour, 0 to 23
+     */
+    public int getHour() {
+        return hour;
+    }
+
+    /**
+     * A getter method returns the minute of the time
+     *
+     * @return the minute, 0 to 59
+     */
+    public int getMinute() {
+        return minute;
+    }
+
+    /**
+     * Returns the number of minutes from midnight to the time
+     *
+     * @return the minute of the day
+     */
+    public int getMinuteOfDay() {
+        return hour * 60 + minute;
+    }
+
     /**
      * Returns a string representation of the time
      *